@@ -361,6 +361,8 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-json")
     implementation("org.springframework.boot:spring-boot-starter-validation")
+    // Cache fuer Suchergebnisse mit W-TinyLFU; die Version verwaltet Spring Boot
+    implementation("com.github.ben-manes.caffeine:caffeine")
 
     println("")
     if (usePersistence) {
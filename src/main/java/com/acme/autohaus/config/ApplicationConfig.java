@@ -16,17 +16,51 @@
  */
 package com.acme.autohaus.config;
 
+import com.acme.autohaus.controller.ExportProperties;
+import com.acme.autohaus.controller.KonkurrenzProperties;
+import com.acme.autohaus.repository.PersistenzProperties;
+import com.acme.autohaus.repository.ScanProperties;
+import com.acme.autohaus.service.SuchCacheProperties;
 import org.springframework.aot.hint.RuntimeHints;
 import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /// Konfigurationsklasse für die Anwendung bzw. den Microservice.
 ///
 /// @author [Jürgen Zimmermann](mailto:Juergen.Zimmermann@h-ka.de)
+@EnableConfigurationProperties({
+    PersistenzProperties.class,
+    ScanProperties.class,
+    KonkurrenzProperties.class,
+    ExportProperties.class,
+    SuchCacheProperties.class
+})
+@EnableScheduling
 public final class ApplicationConfig {
+    // je Aufgabe mit @Scheduled ein Thread: Snapshot des Repositorys und Export
+    private static final int SCHEDULER_THREADS = 2;
+
     /// Konstruktor mit _package private_ für _Spring_.
     ApplicationConfig() {
     }
 
+    /// Scheduler für die Aufgaben mit `@Scheduled`.
+    ///
+    /// Der Scheduler von _Spring Boot_ führt Aufgaben mit `fixedDelay` nacheinander in einem einzigen Thread aus,
+    /// auch mit virtuellen Threads. Ein langer Snapshot würde dann den Export verzögern und umgekehrt.
+    ///
+    /// @return Der Scheduler mit einem Thread je Aufgabe.
+    @Bean
+    ThreadPoolTaskScheduler taskScheduler() {
+        final var scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(SCHEDULER_THREADS);
+        scheduler.setThreadNamePrefix("autohaus-scheduler-");
+        return scheduler;
+    }
+
     // https://docs.spring.io/spring-boot/docs/current/reference/htmlsingle/#native-image.advanced.custom-hints
     // https://stackoverflow.com/questions/76287163/...
     // ...how-to-specify-the-location-of-a-keystore-file-with-spring-aot-processing
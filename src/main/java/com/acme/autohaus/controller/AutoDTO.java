@@ -16,6 +16,8 @@
  */
 package com.acme.autohaus.controller;
 
+import com.acme.autohaus.entity.Auto;
+import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -31,7 +33,7 @@ import java.math.BigDecimal;
  * @param modell  das Modell des Autos; darf nicht leer sein und muss aus 1 bis 50 gültigen Zeichen bestehen.
  * @param baujahr das Baujahr des Autos; muss zwischen 1886 (erstes Automobil) und dem aktuellen Jahr liegen.
  * @param besitzer der Besitzer des Autos; darf nicht leer sein und muss aus 2 bis 100 gültigen Zeichen bestehen.
- * @param preis   der Preis des Autos; muss positiv und darf nicht null sein.
+ * @param preis   der Preis des Autos; muss positiv, höchstens {@link Auto#MAX_PREIS} und darf nicht null sein.
  */
 public record AutoDTO(
     @NotBlank
@@ -50,6 +52,7 @@ public record AutoDTO(
 
     @NotNull
     @DecimalMin(value = "0.0", inclusive = false)
+    @DecimalMax(Auto.MAX_PREIS)
     BigDecimal preis
 
 ) {
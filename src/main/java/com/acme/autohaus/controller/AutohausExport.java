@@ -0,0 +1,161 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import com.acme.autohaus.service.AutohausReadService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/// Export aller Autohäuser als mit gzip komprimierte NDJSON-Datei, z.B. für die stündlichen Abrufe der Analytics.
+///
+/// Die Datei wird im Hintergrund neu geschrieben, sobald sich die Version des Bestands geändert hat, und dann
+/// atomar gegen die bisherige Datei ausgetauscht. Ein Download liest nur noch die fertige Datei, siehe
+/// [AutohausExportController], so dass weder Serialisierung noch Komprimierung je Download anfallen. Die vorherige
+/// Datei bleibt bis zum nächsten Export erhalten, damit laufende Downloads sie noch öffnen können.
+@Component
+@Lazy(false)
+final class AutohausExport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AutohausExport.class);
+    private static final String PRAEFIX = "autohaus-";
+    private static final String ENDUNG = ".ndjson.gz";
+    private static final int PUFFER_GROESSE = 64 * 1024;
+
+    private final AutohausReadService autohausReadService;
+    private final ObjectWriter writer;
+    private final Path verzeichnis;
+
+    @Nullable
+    private volatile Datei aktuell;
+
+    // nur in aktualisieren, das der Scheduler nie parallel zu sich selbst ausfuehrt
+    @Nullable
+    private Datei vorherige;
+
+    /// Konstruktor mit _package private_ für _Spring_.
+    ///
+    /// @param autohausReadService Service zum Lesen aller Autohäuser.
+    /// @param objectMapper Der von Spring Boot konfigurierte ObjectMapper.
+    /// @param exportProperties Konfiguration mit dem Verzeichnis für die Exportdateien.
+    AutohausExport(
+        final AutohausReadService autohausReadService,
+        final ObjectMapper objectMapper,
+        final ExportProperties exportProperties
+    ) {
+        this.autohausReadService = autohausReadService;
+        // eine Zeile je Autohaus; den Zeilenumbruch schreibt der Generator zwischen den Autohaeusern
+        writer = objectMapper.writer().without(FLUSH_AFTER_WRITE_VALUE).withRootValueSeparator("\n");
+        verzeichnis = exportProperties.verzeichnis();
+    }
+
+    /// Eine fertige Exportdatei.
+    ///
+    /// @param pfad Pfad der Datei.
+    /// @param version Version des Bestands, die spätestens in der Datei enthalten ist.
+    /// @param groesse Größe der Datei in Bytes.
+    /// @param erstellt Zeitpunkt, zu dem die Datei fertig geschrieben war.
+    record Datei(Path pfad, String version, long groesse, Instant erstellt) {
+    }
+
+    /// Die zuletzt fertig geschriebene Exportdatei.
+    ///
+    /// @return die Datei oder `null`, solange der erste Export noch läuft.
+    @Nullable
+    Datei aktuell() {
+        return aktuell;
+    }
+
+    /// Schreibt eine neue Exportdatei, falls sich die Version des Bestands seit dem letzten Export geändert hat.
+    ///
+    /// Die Version wird vor dem Lesen ermittelt: die Datei enthält dann mindestens diesen Stand, und eine
+    /// zwischenzeitliche Änderung führt beim nächsten Aufruf zu einem weiteren Export.
+    @Scheduled(fixedDelayString = "${app.export.intervall:10s}")
+    void aktualisieren() {
+        final var version = autohausReadService.getVersion();
+        final var bisher = aktuell;
+        if (bisher != null && bisher.version().equals(version)) {
+            return;
+        }
+        try {
+            if (bisher == null) {
+                aufraeumen();
+            }
+            final var datei = schreiben(version);
+            aktuell = datei;
+            if (vorherige != null) {
+                Files.deleteIfExists(vorherige.pfad());
+            }
+            vorherige = bisher;
+            LOGGER.debug("aktualisieren: {}", datei);
+        } catch (final IOException | UncheckedIOException ex) {
+            // die bisherige Datei bleibt aktuell, der naechste Aufruf versucht es erneut
+            LOGGER.warn("aktualisieren: Export fuer Version {} fehlgeschlagen", version, ex);
+        }
+    }
+
+    private Datei schreiben(final String version) throws IOException {
+        Files.createDirectories(verzeichnis);
+        final var temp = Files.createTempFile(verzeichnis, PRAEFIX, ".tmp");
+        try {
+            var anzahl = 0;
+            try (
+                var autohaeuser = autohausReadService.stream(Map.of());
+                var out = new GZIPOutputStream(Files.newOutputStream(temp), PUFFER_GROESSE);
+                var generator = writer.createGenerator(out)
+            ) {
+                final var iterator = autohaeuser.iterator();
+                while (iterator.hasNext()) {
+                    writer.writeValue(generator, iterator.next());
+                    anzahl++;
+                }
+            }
+            final var pfad = verzeichnis.resolve(PRAEFIX + version + ENDUNG);
+            Files.move(temp, pfad, ATOMIC_MOVE, REPLACE_EXISTING);
+            LOGGER.info("schreiben: {} Autohaeuser nach {} exportiert", anzahl, pfad);
+            return new Datei(pfad, version, Files.size(pfad), Instant.now());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Exportdateien eines frueheren Starts entfernen
+    private void aufraeumen() throws IOException {
+        if (!Files.isDirectory(verzeichnis)) {
+            return;
+        }
+        try (var dateien = Files.newDirectoryStream(verzeichnis, PRAEFIX + '*')) {
+            for (final var datei : dateien) {
+                Files.deleteIfExists(datei);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpRange;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import static com.acme.autohaus.controller.AutohausGetController.API_PATH;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.springframework.http.HttpHeaders.ACCEPT_RANGES;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
+import static org.springframework.http.HttpHeaders.IF_RANGE;
+import static org.springframework.http.HttpHeaders.RANGE;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
+import static org.springframework.http.HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/// Controller für den Download des Exports aller Autohäuser, den [AutohausExport] im Hintergrund schreibt.
+///
+/// Die fertige Datei wird direkt vom Datenträger gestreamt, ohne die Autohäuser erneut zu serialisieren oder zu
+/// komprimieren: unterstützt der Servlet-Container _sendfile_, überträgt er die Datei selbst, ansonsten wird sie mit
+/// [FileChannel#transferTo] in die Response geschrieben. Bei TLS werden die Bytes dabei für die Verschlüsselung
+/// durch den Heap kopiert. Mit dem Header `Range` kann ein abgebrochener Download fortgesetzt werden; `If-Range`
+/// mit dem ETag stellt dabei sicher, dass die Teile aus derselben Datei stammen.
+@RestController
+@RequestMapping(API_PATH)
+final class AutohausExportController {
+    /// Media Type der Exportdatei.
+    static final String APPLICATION_GZIP_VALUE = "application/gzip";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AutohausExportController.class);
+
+    // Request-Attribute von Tomcat fuer sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String DATEINAME = "autohaus.ndjson.gz";
+
+    private final AutohausExport autohausExport;
+
+    private final ExportProperties exportProperties;
+
+    /// Konstruktor mit _package private_ für _Spring_.
+    ///
+    /// @param autohausExport Der Export im Hintergrund.
+    /// @param exportProperties Konfiguration mit dem Intervall für `Retry-After`.
+    AutohausExportController(final AutohausExport autohausExport, final ExportProperties exportProperties) {
+        this.autohausExport = autohausExport;
+        this.exportProperties = exportProperties;
+    }
+
+    /// Download aller Autohäuser als mit gzip komprimierte NDJSON-Datei.
+    ///
+    /// Solange der erste Export noch nicht fertig ist, wird mit Statuscode `503` und `Retry-After` geantwortet.
+    /// Ein einzelner Bereich in `Range` wird mit Statuscode `206` beantwortet; mehrere Bereiche oder ein ungültiger
+    /// Header werden ignoriert und die ganze Datei gesendet.
+    ///
+    /// @param request Der Request mit den Headern `Range`, `If-Range` und `If-None-Match`.
+    /// @param response Die Response, in die die Datei geschrieben wird.
+    /// @throws IOException falls die Datei nicht gelesen oder gesendet werden kann.
+    @GetMapping(path = "/export", produces = APPLICATION_GZIP_VALUE)
+    @Operation(summary = "Alle Autohäuser als komprimierte NDJSON-Datei", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Die Exportdatei")
+    @ApiResponse(responseCode = "206", description = "Ein Bereich der Exportdatei")
+    @ApiResponse(responseCode = "304", description = "Die Exportdatei ist unverändert")
+    @ApiResponse(responseCode = "416", description = "Der Bereich liegt außerhalb der Exportdatei")
+    @ApiResponse(responseCode = "503", description = "Der erste Export ist noch nicht fertig")
+    void getExport(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final var datei = autohausExport.aktuell();
+        if (datei == null) {
+            LOGGER.debug("getExport: noch kein Export");
+            response.setStatus(SERVICE_UNAVAILABLE.value());
+            response.setHeader(RETRY_AFTER, String.valueOf(exportProperties.intervall().toSeconds()));
+            return;
+        }
+
+        final var etag = AutohausGetController.etag(datei.version());
+        if (new ServletWebRequest(request, response).checkNotModified(etag, datei.erstellt().toEpochMilli())) {
+            return;
+        }
+        response.setHeader(ACCEPT_RANGES, "bytes");
+
+        final var laenge = datei.groesse();
+        var start = 0L;
+        var ende = laenge - 1;
+        final var range = request.getHeader(RANGE);
+        final var ifRange = request.getHeader(IF_RANGE);
+        // ein Bereich nur, wenn If-Range fehlt oder die Datei noch dieselbe ist
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            final var bereiche = bereiche(range);
+            if (bereiche.size() == 1) {
+                final var bereich = bereiche.getFirst();
+                try {
+                    start = bereich.getRangeStart(laenge);
+                    ende = bereich.getRangeEnd(laenge);
+                } catch (final IllegalArgumentException ex) {
+                    LOGGER.debug("getExport: Bereich {} ausserhalb von {} Bytes", range, laenge);
+                    response.setStatus(REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(CONTENT_RANGE, "bytes */" + laenge);
+                    return;
+                }
+                response.setStatus(PARTIAL_CONTENT.value());
+                response.setHeader(CONTENT_RANGE, "bytes " + start + '-' + ende + '/' + laenge);
+            }
+        }
+
+        LOGGER.debug("getExport: {}, Bytes {}-{}", datei, start, ende);
+        response.setContentType(APPLICATION_GZIP_VALUE);
+        response.setHeader(CONTENT_DISPOSITION, ContentDisposition.attachment().filename(DATEINAME).build().toString());
+        response.setContentLengthLong(ende - start + 1);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat sendet die Datei nach dem Ende des Handlers selbst
+            request.setAttribute(SENDFILE_FILENAME, datei.pfad().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, ende + 1);
+            return;
+        }
+        try (var channel = FileChannel.open(datei.pfad(), READ)) {
+            final var out = Channels.newChannel(response.getOutputStream());
+            var position = start;
+            while (position <= ende) {
+                position += channel.transferTo(position, ende + 1 - position, out);
+            }
+        }
+    }
+
+    // ungueltige Bereiche werden wie ein fehlender Header behandelt
+    private static List<HttpRange> bereiche(final String range) {
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (final IllegalArgumentException ex) {
+            LOGGER.debug("bereiche: ungueltiger Header Range {}", range);
+            return List.of();
+        }
+    }
+}
@@ -17,22 +17,45 @@
 package com.acme.autohaus.controller;
 
 import com.acme.autohaus.entity.Autohaus;
+import com.acme.autohaus.repository.AutoStatistik;
 import com.acme.autohaus.service.AutohausReadService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.LINK;
+import static org.springframework.http.HttpHeaders.VARY;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.ResponseEntity.ok;
 
 
 ///Controller für die Verwaltung von Autohaus-Anfragen.
@@ -52,52 +75,337 @@ public class AutohausGetController {
      */
     public static final String API_PATH = "/autohaus";
 
+    /**
+     * Die Seitengröße, falls nur ein Cursor angegeben ist.
+     */
+    public static final int DEFAULT_LIMIT = 20;
+
+    /**
+     * Die maximale Seitengröße.
+     */
+    public static final int MAX_LIMIT = 100;
+
+    private static final String LIMIT = "limit";
+    private static final int FLUSH_INTERVALL = 64;
+    private static final String CURSOR = "cursor";
+    private static final String GZIP = "gzip";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(AutohausGetController.class);
 
     private final AutohausReadService autohausReadService;
 
+    private final Projektion projektion;
+
+    private final AutohausJsonCache jsonCache;
+
     /**
      * Konstruktor für den AutohausGetController.
      *
      * @param autohausReadService Der Service zum Lesen von Autohaus-Daten.
+     * @param projektion Die Sparse Fieldsets für gestreamte Responses.
+     * @param jsonCache Der Cache der serialisierten Autohäuser für die Suche anhand der ID.
      */
-    public AutohausGetController(final AutohausReadService autohausReadService) {
+    AutohausGetController(
+        final AutohausReadService autohausReadService,
+        final Projektion projektion,
+        final AutohausJsonCache jsonCache
+    ) {
         this.autohausReadService = autohausReadService;
+        this.projektion = projektion;
+        this.jsonCache = jsonCache;
     }
 
     /**
      * Suche mit diversen Suchkriterien als Query-Parameter.
+     * <p>
+     * Unterstützt werden {@code name} sowie Kriterien über die Autos eines Autohauses: {@code marke},
+     * {@code modell} und {@code besitzer} über Hash-Indexe und {@code baujahr}, {@code baujahrMin},
+     * {@code baujahrMax}, {@code preisMin} und {@code preisMax} über sortierte Indexe.
+     * </p>
+     * <p>
+     * Mit {@code limit} und {@code cursor} wird seitenweise geblättert: {@code limit} begrenzt die Anzahl der
+     * Autohäuser auf höchstens {@value #MAX_LIMIT}, der Cursor stammt aus dem Header {@code Link} mit
+     * {@code rel="next"} der vorherigen Seite. Fehlt dieser Header, ist die Seite die letzte.
+     * </p>
+     * <p>
+     * Mit {@code fields}, z.B. {@code fields=name,email,autos.marke}, werden nur die angegebenen Properties
+     * geschrieben, siehe {@link Projektion}.
+     * </p>
+     * <p>
+     * Der ETag ist die Version des gesamten Bestands. Stimmt er mit {@code If-None-Match} überein, wird ohne Suche
+     * und ohne Serialisierung mit Statuscode {@code 304} geantwortet.
+     * </p>
      *
      * @param suchkriterien Query-Parameter als Map.
-     * @return Gefundene Autohäuser als [List].
+     * @param limit maximale Anzahl der Autohäuser je Seite oder {@code null}.
+     * @param cursor Cursor der vorherigen Seite oder {@code null}.
+     * @param request Der Request für den Vergleich mit {@code If-None-Match}.
+     * @return Gefundene Autohäuser als [List] und ggf. der Link auf die nächste Seite.
      */
     @GetMapping(produces = APPLICATION_JSON_VALUE)
     @Operation(summary = "Suche mit Suchkriterien", tags = "Suchen")
     @ApiResponse(responseCode = "200", description = "Liste mit Autohäuser")
+    @ApiResponse(responseCode = "304", description = "Keine Änderung seit dem ETag in If-None-Match")
+    @ApiResponse(responseCode = "400", description = "Ungültiger Cursor")
     @ApiResponse(responseCode = "404", description = "Keine Autohäuser gefunden")
-    public List<Autohaus> get(
-        @RequestParam @NonNull final MultiValueMap<String, String> suchkriterien
+    public ResponseEntity<List<Autohaus>> get(
+        @RequestParam @NonNull final MultiValueMap<String, String> suchkriterien,
+        @RequestParam(required = false) @Nullable final Integer limit,
+        @RequestParam(required = false) @Nullable final String cursor,
+        final WebRequest request
+    ) {
+        LOGGER.debug("get:Suchkriterien= {}, limit={}, cursor={}", suchkriterien, limit, cursor);
+        // die Version vor der Suche lesen: aendert sich der Bestand waehrenddessen, ist der ETag hoechstens zu alt
+        final var etag = etag(autohausReadService.getVersion());
+        if (request.checkNotModified(etag)) {
+            LOGGER.debug("get: nicht geaendert, etag={}", etag);
+            return null;
+        }
+
+        final var kriterien = suchkriterien(suchkriterien);
+        if (limit == null && cursor == null) {
+            final List<Autohaus> autohauser = autohausReadService.get(kriterien);
+            LOGGER.debug("get:Autohaeuser= {}", autohauser);
+            return ok().eTag(etag).body(autohauser);
+        }
+
+        final var seitengroesse = limit == null ? DEFAULT_LIMIT : Math.clamp(limit, 1, MAX_LIMIT);
+        final var seite = autohausReadService.getSeite(kriterien, cursor, seitengroesse);
+        LOGGER.debug("get:Seite= {}", seite);
+        final var response = ok().eTag(etag);
+        seite.naechsterCursor().ifPresent(naechsterCursor -> {
+            final var naechsteSeite = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam(LIMIT, seitengroesse)
+                .replaceQueryParam(CURSOR, naechsterCursor)
+                .toUriString();
+            response.header(LINK, '<' + naechsteSeite + ">; rel=\"next\"");
+        });
+        return response.body(seite.autohaeuser());
+    }
+
+    /**
+     * Suche mit Suchkriterien als gestreamte Response im Format NDJSON, d.h. ein Autohaus als JSON-Objekt je Zeile.
+     * <p>
+     * Die Autohäuser werden einzeln aus dem Repository gelesen und direkt mit einem {@link JsonGenerator} in die
+     * Response geschrieben, die nach jeweils {@value #FLUSH_INTERVALL} Autohäusern geleert wird. Der Speicherbedarf
+     * ist damit unabhängig von der Anzahl der Autohäuser und das erste Autohaus wird sofort gesendet.
+     * </p>
+     *
+     * @param suchkriterien Query-Parameter als Map.
+     * @return Die gestreamte Response.
+     */
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Suche mit Suchkriterien als NDJSON", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Autohäuser als NDJSON, ggf. leer")
+    public ResponseEntity<StreamingResponseBody> getNdjson(
+        @RequestParam @NonNull final MultiValueMap<String, String> suchkriterien,
+        final HttpServletRequest request
+    ) {
+        LOGGER.debug("getNdjson: suchkriterien={}", suchkriterien);
+        final var kriterien = suchkriterien(suchkriterien);
+        final var writer = projektion.writer(request);
+        return ok()
+            .contentType(APPLICATION_NDJSON)
+            .body(out -> schreiben(kriterien, writer, out, false));
+    }
+
+    /**
+     * Suche mit Suchkriterien als gestreamtes JSON-Array, z.B. für Exporte.
+     * <p>
+     * Das Ergebnis entspricht einem GET-Request ohne Paginierung, wird aber wie bei NDJSON Autohaus für Autohaus
+     * geschrieben. Ein leeres Ergebnis wird als leeres Array statt mit Statuscode {@code 404} geliefert.
+     * </p>
+     *
+     * @param suchkriterien Query-Parameter als Map.
+     * @return Die gestreamte Response.
+     */
+    @GetMapping(path = "/stream", produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Suche mit Suchkriterien als gestreamtes JSON-Array", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Autohäuser als JSON-Array, ggf. leer")
+    public ResponseEntity<StreamingResponseBody> getStream(
+        @RequestParam @NonNull final MultiValueMap<String, String> suchkriterien,
+        final HttpServletRequest request
+    ) {
+        LOGGER.debug("getStream: suchkriterien={}", suchkriterien);
+        final var kriterien = suchkriterien(suchkriterien);
+        final var writer = projektion.writer(request);
+        return ok()
+            .contentType(APPLICATION_JSON)
+            .body(out -> schreiben(kriterien, writer, out, true));
+    }
+
+    // Query-Parameter ohne die Parameter fuer Paginierung und Projektion
+    private static Map<String, List<String>> suchkriterien(final MultiValueMap<String, String> queryParameter) {
+        final var suchkriterien = new LinkedMultiValueMap<>(queryParameter);
+        suchkriterien.remove(LIMIT);
+        suchkriterien.remove(CURSOR);
+        suchkriterien.remove(Projektion.FIELDS);
+        return suchkriterien;
+    }
+
+    // der Writer wird vorab im Request-Thread erzeugt, weil der Request beim Streamen evtl. nicht mehr gueltig ist
+    private void schreiben(
+        final Map<String, List<String>> suchkriterien,
+        final ObjectWriter writer,
+        final OutputStream out,
+        final boolean alsArray
+    ) throws IOException {
+        try (
+            var autohaeuser = autohausReadService.stream(suchkriterien);
+            var generator = writer.createGenerator(out)
+        ) {
+            // den Stream der Response schliesst der Servlet-Container
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (alsArray) {
+                generator.writeStartArray();
+            }
+            final var iterator = autohaeuser.iterator();
+            var anzahl = 0;
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                if (++anzahl % FLUSH_INTERVALL == 0) {
+                    generator.flush();
+                }
+            }
+            if (alsArray) {
+                generator.writeEndArray();
+            }
+            LOGGER.debug("schreiben: anzahl={}", anzahl);
+        }
+    }
+
+    /**
+     * Facetten für eine Suchoberfläche: die Anzahl der Autos je Marke, Stadt und Postleitzahl.
+     * <p>
+     * Mit den Query-Parametern {@code marke}, {@code stadt} und {@code plz} werden Werte ausgewählt; die Anzahlen
+     * einer Facette berücksichtigen jeweils die Auswahl der anderen Facetten.
+     * </p>
+     *
+     * @param filter Query-Parameter als Map.
+     * @return Anzahl der Autos je Wert und Facette.
+     */
+    @GetMapping(path = "/facetten", produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Facetten mit der Anzahl der Autos je Marke, Stadt und PLZ", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Facetten berechnet")
+    @ApiResponse(responseCode = "404", description = "Unbekannter Filter")
+    public Map<String, Map<String, Integer>> getFacetten(
+        @RequestParam @NonNull final MultiValueMap<String, String> filter
     ) {
-        LOGGER.debug("get:Suchkriterien= {}", suchkriterien);
-        final List<Autohaus> autohauser = autohausReadService.get(suchkriterien);
-        LOGGER.debug("get:Autohaeuser= {}", autohauser);
-        return autohauser;
+        LOGGER.debug("getFacetten: filter={}", filter);
+        return autohausReadService.facetten(filter);
+    }
+
+    /**
+     * Kennzahlen über alle Autos: Anzahl, Summe, Durchschnitt, Minimum und Maximum der Preise sowie die Anzahl
+     * je Marke und je Baujahr.
+     * <p>
+     * Die Kennzahlen werden beim Schreiben fortgeschrieben, so dass die Abfrage nicht über die Autos läuft.
+     * </p>
+     *
+     * @return Die Kennzahlen.
+     */
+    @GetMapping(path = "/statistik", produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Kennzahlen über alle Autos", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Kennzahlen gelesen")
+    public AutoStatistik getStatistik() {
+        LOGGER.debug("getStatistik");
+        return autohausReadService.statistik();
+    }
+
+    /**
+     * Kennzahlen über die Autos eines Autohauses.
+     *
+     * @param id Die ID des Autohauses.
+     * @return Die Kennzahlen.
+     */
+    @GetMapping(path = "/statistik/{id}", produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Kennzahlen über die Autos eines Autohauses", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Kennzahlen gelesen")
+    @ApiResponse(responseCode = "404", description = "Autohaus nicht gefunden")
+    public AutoStatistik getStatistik(@PathVariable final String id) {
+        LOGGER.debug("getStatistik: id={}", id);
+        return autohausReadService.statistik(id);
     }
 
     /**
      * Endpunkt zum Abrufen eines Autohauses anhand seiner ID.
+     * <p>
+     * Der ETag ist die Version des Autohauses. Stimmt er mit {@code If-None-Match} überein, wird ohne
+     * Serialisierung mit Statuscode {@code 304} geantwortet.
+     * </p>
+     * <p>
+     * Ohne {@code fields} wird der Response-Body nicht je Request serialisiert, sondern aus dem
+     * {@link AutohausJsonCache} direkt in die Response geschrieben, bei {@code Accept-Encoding: gzip} ggf.
+     * komprimiert.
+     * </p>
      *
      * @param id Die ID des Autohauses.
-     * @return Das Autohaus-Objekt mit der angegebenen ID.
+     * @param request Der Request für den Vergleich mit {@code If-None-Match}.
+     * @param response Die Response für die zwischengespeicherten Bytes.
+     * @return Das Autohaus-Objekt mit der angegebenen ID oder {@code null}, falls die Response bereits geschrieben
+     * ist.
+     * @throws IOException falls die Response nicht geschrieben werden kann.
      */
     @GetMapping(path = "/{id}", produces = APPLICATION_JSON_VALUE)
     @Operation(summary = "Suche mit der Autohaus-ID", tags = "Suchen")
     @ApiResponse(responseCode = "200", description = "Autohaus gefunden")
+    @ApiResponse(responseCode = "304", description = "Keine Änderung seit dem ETag in If-None-Match")
     @ApiResponse(responseCode = "404", description = "Autohaus nicht gefunden")
-    public Autohaus getByID(@PathVariable final String id) {
-        LOGGER.info("Suche nach Autohaus mit id: {}", id);
+    public ResponseEntity<Autohaus> getByID(
+        @PathVariable final String id,
+        final WebRequest request,
+        final HttpServletResponse response
+    ) throws IOException {
+        LOGGER.debug("getByID: id={}", id);
         final Autohaus autohaus = autohausReadService.getByID(id);
-        LOGGER.info("Suche nach Autohaus mit id {} abgeschlossen", id);
-        return autohaus;
+        final var etag = etag(autohaus.getVersion());
+        if (request.checkNotModified(etag)) {
+            LOGGER.debug("getByID: nicht geaendert, etag={}", etag);
+            return null;
+        }
+        LOGGER.debug("getByID: {}", autohaus);
+        if (request.getParameter(Projektion.FIELDS) != null) {
+            return ok().eTag(etag).body(autohaus);
+        }
+
+        final var serialisiert = jsonCache.serialisiert(autohaus, akzeptiertGzip(request.getHeader(ACCEPT_ENCODING)));
+        final var gzip = serialisiert.gzip();
+        response.setContentType(APPLICATION_JSON_VALUE);
+        response.setHeader(ETAG, etag);
+        response.addHeader(VARY, ACCEPT_ENCODING);
+        final byte[] body;
+        if (gzip == null) {
+            body = serialisiert.json();
+        } else {
+            response.setHeader(CONTENT_ENCODING, GZIP);
+            body = gzip;
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        return null;
+    }
+
+    // gzip, sofern nicht mit q=0 ausgeschlossen
+    private static boolean akzeptiertGzip(@Nullable final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (final var kodierung : acceptEncoding.split(",")) {
+            final var teile = kodierung.split(";");
+            if (GZIP.equalsIgnoreCase(teile[0].strip())) {
+                return teile.length == 1 || !teile[1].strip().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ETag zu einer Version als String in Anführungszeichen.
+     *
+     * @param version Die Version.
+     * @return Der ETag.
+     */
+    static String etag(final Object version) {
+        return "\"" + version + '"';
     }
 }
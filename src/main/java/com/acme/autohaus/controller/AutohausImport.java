@@ -0,0 +1,474 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import com.acme.autohaus.entity.Adresse;
+import com.acme.autohaus.entity.Autohaus;
+import com.acme.autohaus.service.AutohausWriteService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import static com.acme.autohaus.controller.AutohausDTO.OnCreate;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/// Import sehr vieler Autohäuser aus einer NDJSON- oder CSV-Datei, z.B. aus den nächtlichen Exporten der
+/// Partnersysteme.
+///
+/// Die Datei wird zeilenweise gelesen und in Blöcken zu je höchstens [#BLOCK_GROESSE] Zeilen bzw. [#BLOCK_ZEICHEN]
+/// Zeichen an einen Pool von Worker-Threads übergeben, den sich alle gleichzeitigen Imports teilen. Ein Worker parst
+/// und validiert die Zeilen seines Blocks, bildet sie mit dem [AutohausMapper] ab und legt die gültigen Autohäuser mit
+/// einem gemeinsamen Commit an. Über alle Imports hinweg sind je Worker höchstens zwei Blöcke unterwegs; sind alle
+/// belegt, wartet das Lesen, so dass der Speicherbedarf weder von der Größe der Dateien noch von der Anzahl der Imports
+/// abhängt. Eine Zeile mit mehr als [#MAX_ZEILENLAENGE] Zeichen wird nicht gepuffert, sondern überlesen und als
+/// fehlerhaft gemeldet.
+///
+/// Eine CSV-Datei beginnt mit einer Kopfzeile mit den Spalten `name`, `telefonnummer` und `email` sowie optional
+/// `strasse`, `hausnummer`, `plz` und `stadt` in beliebiger Reihenfolge. Die Felder sind durch Kommas getrennt und
+/// dürfen in doppelte Anführungszeichen eingeschlossen sein; Zeilenumbrüche innerhalb eines Feldes werden nicht
+/// unterstützt. Autos können nur mit NDJSON importiert werden.
+@Component
+final class AutohausImport {
+    /// Media Type für CSV-Dateien.
+    static final String TEXT_CSV_VALUE = "text/csv";
+
+    /// Anzahl Zeilen, die ein Worker mit einem gemeinsamen Commit anlegt.
+    static final int BLOCK_GROESSE = 1_000;
+
+    /// Maximale Anzahl Zeichen einer Zeile ohne Zeilenende.
+    static final int MAX_ZEILENLAENGE = 1024 * 1024;
+
+    /// Anzahl Zeichen, ab der ein Block auch mit weniger als [#BLOCK_GROESSE] Zeilen übergeben wird.
+    static final int BLOCK_ZEICHEN = 4 * MAX_ZEILENLAENGE;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AutohausImport.class);
+    private static final int PUFFER_GROESSE = 64 * 1024;
+    private static final int MAX_FEHLER = 100;
+    private static final int FORTSCHRITT_BLOECKE = 100;
+    private static final char TRENNZEICHEN = ',';
+    private static final char ANFUEHRUNGSZEICHEN = '"';
+    private static final Comparator<ImportBericht.Fehler> ZEILE = Comparator.comparingLong(ImportBericht.Fehler::zeile);
+    private static final List<String> PFLICHTSPALTEN = List.of("name", "telefonnummer", "email");
+    private static final List<String> SPALTEN =
+        List.of("name", "telefonnummer", "email", "strasse", "hausnummer", "plz", "stadt");
+
+    private final AutohausWriteService autohausWriteService;
+    private final AutohausMapper autohausMapper;
+    private final Validator validator;
+    private final ObjectReader dtoReader;
+
+    // gemeinsam fuer alle Imports: Worker-Threads und freie Plaetze fuer Bloecke
+    private final ExecutorService executor;
+    private final Semaphore freieBloecke;
+
+    /// Konstruktor mit _package private_ für _Spring_.
+    ///
+    /// @param autohausWriteService Service für Schreiboperationen.
+    /// @param autohausMapper Mapper für Autohaus-DTOs.
+    /// @param validator Validator für die DTOs.
+    /// @param objectMapper ObjectMapper für NDJSON-Zeilen.
+    AutohausImport(
+        final AutohausWriteService autohausWriteService,
+        final AutohausMapper autohausMapper,
+        final Validator validator,
+        final ObjectMapper objectMapper
+    ) {
+        this.autohausWriteService = autohausWriteService;
+        this.autohausMapper = autohausMapper;
+        this.validator = validator;
+        dtoReader = objectMapper.readerFor(AutohausDTO.class);
+        final var worker = Runtime.getRuntime().availableProcessors();
+        executor = Executors.newFixedThreadPool(worker, Thread.ofPlatform().name("import-", 0).daemon().factory());
+        freieBloecke = new Semaphore(2 * worker);
+    }
+
+    /// Die Worker-Threads beim Herunterfahren beenden; bereits übergebene Blöcke werden noch angelegt.
+    @PreDestroy
+    void close() {
+        executor.shutdown();
+    }
+
+    /// Format der zu importierenden Datei.
+    enum Format {
+        /// Ein JSON-Objekt wie beim POST-Request je Zeile.
+        NDJSON,
+
+        /// Kopfzeile und ein Autohaus ohne Autos je Zeile.
+        CSV
+    }
+
+    /// Importiert alle Autohäuser einer Datei.
+    ///
+    /// @param in die Datei in UTF-8, die vollständig gelesen, aber nicht geschlossen wird.
+    /// @param format das Format der Datei.
+    /// @return Bericht mit den Anzahlen der angelegten und fehlerhaften Zeilen.
+    /// @throws IOException falls die Datei nicht gelesen werden kann.
+    /// @throws IllegalArgumentException falls die Kopfzeile einer CSV-Datei fehlt oder ungültig ist.
+    ImportBericht importieren(final InputStream in, final Format format) throws IOException {
+        LOGGER.debug("importieren: format={}", format);
+        final var leser = new Zeilenleser(new InputStreamReader(in, UTF_8));
+        final var spalten = format == Format.CSV ? spalten(leser.naechsteZeile() ? leser.zeile() : null) : null;
+        final var fortschritt = new Fortschritt();
+
+        // je uebergebenem Block eine Partei, damit am Ende auf die Bloecke dieses Imports gewartet wird
+        final var offeneBloecke = new Phaser(1);
+        try {
+            var zeilennummer = spalten == null ? 1L : 2L;
+            var block = new ArrayList<String>(BLOCK_GROESSE);
+            var ersteZeile = zeilennummer;
+            var zeichen = 0L;
+            while (leser.naechsteZeile()) {
+                final var zeile = leser.zeile();
+                if (zeile == null) {
+                    fortschritt.zeilen.incrementAndGet();
+                    fortschritt.fehler(zeilennummer, "Die Zeile ist laenger als " + MAX_ZEILENLAENGE + " Zeichen");
+                    // leere Zeile als Platzhalter, damit die Zeilennummern im Block stimmen
+                    block.add("");
+                } else {
+                    block.add(zeile);
+                    zeichen += zeile.length();
+                }
+                zeilennummer++;
+                if (block.size() == BLOCK_GROESSE || zeichen >= BLOCK_ZEICHEN) {
+                    uebergeben(new Block(ersteZeile, block), spalten, fortschritt, offeneBloecke);
+                    block = new ArrayList<>(BLOCK_GROESSE);
+                    ersteZeile = zeilennummer;
+                    zeichen = 0L;
+                }
+            }
+            if (!block.isEmpty()) {
+                uebergeben(new Block(ersteZeile, block), spalten, fortschritt, offeneBloecke);
+            }
+        } finally {
+            offeneBloecke.arriveAndAwaitAdvance();
+        }
+
+        final var bericht = fortschritt.bericht();
+        LOGGER.info("importieren: {} Zeilen, {} angelegt, {} fehlerhaft",
+            bericht.zeilen(), bericht.angelegt(), bericht.fehlerhaft());
+        return bericht;
+    }
+
+    // wartet auf einen freien Platz, damit das Lesen nicht schneller als das Anlegen ist
+    private void uebergeben(
+        final Block block,
+        @Nullable final Map<String, Integer> spalten,
+        final Fortschritt fortschritt,
+        final Phaser offeneBloecke
+    ) throws InterruptedIOException {
+        try {
+            freieBloecke.acquire();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import abgebrochen");
+        }
+        offeneBloecke.register();
+        try {
+            executor.execute(() -> {
+                try {
+                    verarbeiten(block, spalten, fortschritt);
+                } finally {
+                    freieBloecke.release();
+                    offeneBloecke.arriveAndDeregister();
+                }
+            });
+        } catch (final RejectedExecutionException ex) {
+            // beim Herunterfahren
+            freieBloecke.release();
+            offeneBloecke.arriveAndDeregister();
+            throw ex;
+        }
+    }
+
+    private void verarbeiten(
+        final Block block,
+        @Nullable final Map<String, Integer> spalten,
+        final Fortschritt fortschritt
+    ) {
+        final var zeilen = block.zeilen();
+        final List<Autohaus> gueltige = new ArrayList<>(zeilen.size());
+        final List<Long> nummern = new ArrayList<>(zeilen.size());
+        for (var i = 0; i < zeilen.size(); i++) {
+            final var zeile = zeilen.get(i);
+            if (zeile.isBlank()) {
+                continue;
+            }
+            final var nummer = block.ersteZeile() + i;
+            fortschritt.zeilen.incrementAndGet();
+            final AutohausDTO dto;
+            try {
+                dto = spalten == null ? dtoReader.readValue(zeile) : ausCsv(zeile, spalten);
+            } catch (final JsonProcessingException ex) {
+                fortschritt.fehler(nummer, "Syntaxfehler: " + ex.getOriginalMessage());
+                continue;
+            } catch (final IllegalArgumentException ex) {
+                fortschritt.fehler(nummer, "Syntaxfehler: " + ex.getMessage());
+                continue;
+            }
+            final var verletzungen = validator.validate(dto, Default.class, OnCreate.class);
+            if (!verletzungen.isEmpty()) {
+                final var meldung = verletzungen.stream()
+                    .map(verletzung -> verletzung.getPropertyPath() + ": " + verletzung.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+                fortschritt.fehler(nummer, meldung);
+                continue;
+            }
+            gueltige.add(autohausMapper.toAutohaus(dto));
+            nummern.add(nummer);
+        }
+
+        try {
+            final var ergebnisse = autohausWriteService.createBatch(gueltige);
+            for (var i = 0; i < ergebnisse.size(); i++) {
+                if (ergebnisse.get(i).isPresent()) {
+                    fortschritt.angelegt.incrementAndGet();
+                } else {
+                    final var meldung = "Die Emailadresse " + gueltige.get(i).getEmail() + " existiert bereits";
+                    fortschritt.fehler(nummern.get(i), meldung);
+                }
+            }
+        } catch (final RuntimeException ex) {
+            LOGGER.warn("verarbeiten: Block ab Zeile {} nicht angelegt", block.ersteZeile(), ex);
+            nummern.forEach(nummer -> fortschritt.fehler(nummer, "Nicht angelegt: " + ex.getMessage()));
+        }
+
+        final var bloecke = fortschritt.bloecke.incrementAndGet();
+        if (bloecke % FORTSCHRITT_BLOECKE == 0) {
+            LOGGER.info("importieren: {} Zeilen, {} angelegt, {} fehlerhaft",
+                fortschritt.zeilen.get(), fortschritt.angelegt.get(), fortschritt.fehlerhaft.get());
+        }
+    }
+
+    // Spaltenname -> Index aus der Kopfzeile
+    private static Map<String, Integer> spalten(@Nullable final String kopfzeile) {
+        if (kopfzeile == null || kopfzeile.isBlank()) {
+            throw new IllegalArgumentException("Die Kopfzeile der CSV-Datei fehlt");
+        }
+        final var namen = felder(kopfzeile.strip());
+        final Map<String, Integer> spalten = new HashMap<>(namen.size() * 2);
+        for (var i = 0; i < namen.size(); i++) {
+            final var name = namen.get(i).strip().toLowerCase(Locale.ROOT);
+            if (!SPALTEN.contains(name)) {
+                throw new IllegalArgumentException("Unbekannte Spalte in der Kopfzeile: " + name);
+            }
+            if (spalten.put(name, i) != null) {
+                throw new IllegalArgumentException("Doppelte Spalte in der Kopfzeile: " + name);
+            }
+        }
+        PFLICHTSPALTEN.stream()
+            .filter(name -> !spalten.containsKey(name))
+            .findFirst()
+            .ifPresent(name -> {
+                throw new IllegalArgumentException("Die Spalte " + name + " fehlt in der Kopfzeile");
+            });
+        return spalten;
+    }
+
+    private static AutohausDTO ausCsv(final String zeile, final Map<String, Integer> spalten) {
+        final var felder = felder(zeile);
+        if (felder.size() != spalten.size()) {
+            final var meldung = spalten.size() + " Felder erwartet, aber " + felder.size() + " gefunden";
+            throw new IllegalArgumentException(meldung);
+        }
+        final var adresse = new Adresse(
+            feld(felder, spalten, "strasse"),
+            feld(felder, spalten, "hausnummer"),
+            feld(felder, spalten, "plz"),
+            feld(felder, spalten, "stadt")
+        );
+        return new AutohausDTO(
+            feld(felder, spalten, "name"),
+            feld(felder, spalten, "telefonnummer"),
+            feld(felder, spalten, "email"),
+            List.of(),
+            adresse
+        );
+    }
+
+    @Nullable
+    private static String feld(final List<String> felder, final Map<String, Integer> spalten, final String name) {
+        final var index = spalten.get(name);
+        return index == null ? null : felder.get(index);
+    }
+
+    // Felder einer CSV-Zeile; "" innerhalb eines Feldes in Anfuehrungszeichen steht fuer ein Anfuehrungszeichen
+    private static List<String> felder(final String zeile) {
+        final List<String> felder = new ArrayList<>(SPALTEN.size());
+        final var feld = new StringBuilder();
+        var inAnfuehrung = false;
+        var i = 0;
+        while (i < zeile.length()) {
+            final var zeichen = zeile.charAt(i);
+            i++;
+            if (inAnfuehrung) {
+                if (zeichen != ANFUEHRUNGSZEICHEN) {
+                    feld.append(zeichen);
+                } else if (i < zeile.length() && zeile.charAt(i) == ANFUEHRUNGSZEICHEN) {
+                    feld.append(ANFUEHRUNGSZEICHEN);
+                    i++;
+                } else {
+                    inAnfuehrung = false;
+                }
+            } else if (zeichen == ANFUEHRUNGSZEICHEN) {
+                inAnfuehrung = true;
+            } else if (zeichen == TRENNZEICHEN) {
+                felder.add(feld.toString());
+                feld.setLength(0);
+            } else {
+                feld.append(zeichen);
+            }
+        }
+        if (inAnfuehrung) {
+            throw new IllegalArgumentException("Anführungszeichen nicht geschlossen");
+        }
+        felder.add(feld.toString());
+        return felder;
+    }
+
+    private record Block(long ersteZeile, List<String> zeilen) {
+    }
+
+    // wie BufferedReader.readLine(), aber eine zu lange Zeile wird ueberlesen statt vollstaendig gepuffert
+    private static final class Zeilenleser {
+        private final Reader reader;
+        private final char[] puffer = new char[PUFFER_GROESSE];
+        private final StringBuilder zeile = new StringBuilder();
+        private int position;
+        private int ende;
+        private boolean zuLang;
+        // nach \r wird ein direkt folgendes \n nicht als weiteres Zeilenende gezaehlt
+        private boolean nachCr;
+
+        Zeilenleser(final Reader reader) {
+            this.reader = reader;
+        }
+
+        // liest die naechste Zeile; false am Ende der Datei
+        boolean naechsteZeile() throws IOException {
+            zeile.setLength(0);
+            zuLang = false;
+            var gelesen = false;
+            while (true) {
+                if (position == ende) {
+                    ende = reader.read(puffer);
+                    position = 0;
+                    if (ende <= 0) {
+                        ende = 0;
+                        return gelesen;
+                    }
+                }
+                if (nachCr) {
+                    nachCr = false;
+                    if (puffer[position] == '\n') {
+                        position++;
+                        continue;
+                    }
+                }
+                gelesen = true;
+                final var start = position;
+                while (position < ende && puffer[position] != '\n' && puffer[position] != '\r') {
+                    position++;
+                }
+                anhaengen(start, position - start);
+                if (position < ende) {
+                    nachCr = puffer[position] == '\r';
+                    position++;
+                    return true;
+                }
+            }
+        }
+
+        // die gelesene Zeile ohne Zeilenende oder null, falls sie laenger als MAX_ZEILENLAENGE ist
+        @Nullable
+        String zeile() {
+            return zuLang ? null : zeile.toString();
+        }
+
+        private void anhaengen(final int start, final int anzahl) {
+            if (zuLang) {
+                return;
+            }
+            if (zeile.length() + anzahl > MAX_ZEILENLAENGE) {
+                zuLang = true;
+                zeile.setLength(0);
+                zeile.trimToSize();
+                return;
+            }
+            zeile.append(puffer, start, anzahl);
+        }
+    }
+
+    // Zaehler aller Worker eines Imports
+    private static final class Fortschritt {
+        private final AtomicLong zeilen = new AtomicLong();
+        private final AtomicLong angelegt = new AtomicLong();
+        private final AtomicLong fehlerhaft = new AtomicLong();
+        private final AtomicInteger bloecke = new AtomicInteger();
+        // die Fehler mit den kleinsten Zeilennummern; die groesste Zeilennummer steht vorne
+        private final PriorityQueue<ImportBericht.Fehler> fehler =
+            new PriorityQueue<>(MAX_FEHLER + 1, ZEILE.reversed());
+
+        void fehler(final long zeile, final String meldung) {
+            fehlerhaft.incrementAndGet();
+            // nur einige Fehler werden gemeldet, damit eine fehlerhafte Datei den Bericht nicht aufblaeht; die Worker
+            // melden in beliebiger Reihenfolge, deshalb werden die ersten Zeilen der Datei behalten
+            synchronized (fehler) {
+                if (fehler.size() < MAX_FEHLER) {
+                    fehler.add(new ImportBericht.Fehler(zeile, meldung));
+                } else if (zeile < fehler.element().zeile()) {
+                    fehler.remove();
+                    fehler.add(new ImportBericht.Fehler(zeile, meldung));
+                }
+            }
+        }
+
+        ImportBericht bericht() {
+            final List<ImportBericht.Fehler> sortiert;
+            synchronized (fehler) {
+                sortiert = fehler.stream().sorted(ZEILE).toList();
+            }
+            return new ImportBericht(zeilen.get(), angelegt.get(), fehlerhaft.get(), sortiert);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import com.acme.autohaus.entity.Autohaus;
+import com.acme.autohaus.repository.AutohausAktualisiert;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/// Cache der serialisierten Response-Bodies für `GET /autohaus/{id}`, damit ein unverändertes Autohaus nicht bei
+/// jedem Request erneut von Jackson serialisiert wird.
+///
+/// Je Autohaus werden die JSON-Bytes in UTF-8 für genau eine Version gespeichert und bei Bedarf eine mit gzip
+/// komprimierte Variante. Ein Eintrag wird nur für dieselbe Version verwendet und nach [AutohausAktualisiert]
+/// verworfen; Caffeine begrenzt die Anzahl der Einträge. Treffer und Fehlschläge werden als Metriken `cache.*` mit
+/// dem Tag `cache=autohaus.json` veröffentlicht.
+@Component
+final class AutohausJsonCache {
+    private static final String NAME = "autohaus.json";
+    private static final long MAX_EINTRAEGE = 10_000;
+
+    // kleinere Bodies werden nicht komprimiert, siehe server.compression.min-response-size
+    private static final int GZIP_MIN_BYTES = 2048;
+
+    private final ObjectWriter writer;
+
+    private final Cache<UUID, Serialisiert> cache = Caffeine.newBuilder()
+        .maximumSize(MAX_EINTRAEGE)
+        .recordStats()
+        .build();
+
+    /// Konstruktor mit _package private_ für _Spring_.
+    ///
+    /// @param objectMapper Der von Spring Boot konfigurierte ObjectMapper wie für die übrigen Responses.
+    /// @param meterRegistry Registry für die Metriken des Caches.
+    AutohausJsonCache(final ObjectMapper objectMapper, final MeterRegistry meterRegistry) {
+        writer = objectMapper.writer();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+
+    /// Serialisierter Response-Body einer Version eines Autohauses.
+    ///
+    /// @param version Die Version des Autohauses.
+    /// @param json Die JSON-Bytes in UTF-8.
+    /// @param gzip Die komprimierten JSON-Bytes oder `null`, falls noch nicht komprimiert oder zu klein.
+    record Serialisiert(long version, byte[] json, @Nullable byte[] gzip) {
+    }
+
+    /// Liefert die serialisierte Version eines Autohauses aus dem Cache oder serialisiert es.
+    ///
+    /// @param autohaus Das Autohaus in der aktuell gespeicherten Version.
+    /// @param mitGzip Flag, ob der Client gzip akzeptiert und die komprimierte Variante ggf. erzeugt werden soll.
+    /// @return Der serialisierte Response-Body.
+    Serialisiert serialisiert(final Autohaus autohaus, final boolean mitGzip) {
+        final var id = autohaus.getUUId();
+        var eintrag = cache.getIfPresent(id);
+        if (eintrag == null || eintrag.version() != autohaus.getVersion()) {
+            eintrag = new Serialisiert(autohaus.getVersion(), json(autohaus), null);
+            cache.put(id, eintrag);
+        }
+        if (mitGzip && eintrag.gzip() == null && eintrag.json().length >= GZIP_MIN_BYTES) {
+            eintrag = new Serialisiert(eintrag.version(), eintrag.json(), gzip(eintrag.json()));
+            cache.put(id, eintrag);
+        }
+        return eintrag;
+    }
+
+    /// Verwirft die serialisierte Version eines aktualisierten Autohauses.
+    ///
+    /// @param event Das Ereignis des Repositorys.
+    @EventListener
+    void onAktualisiert(final AutohausAktualisiert event) {
+        cache.invalidate(event.id());
+    }
+
+    private byte[] json(final Autohaus autohaus) {
+        try {
+            return writer.writeValueAsBytes(autohaus);
+        } catch (final JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static byte[] gzip(final byte[] json) {
+        final var bytes = new ByteArrayOutputStream(json.length / 2);
+        try (var out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -33,12 +33,13 @@ public interface AutohausMapper {
 
     /**
      * Konvertiert ein {@link AutohausDTO} in eine {@link Autohaus}-Entität.
-     * Die UUID wird hierbei ignoriert und nicht gesetzt.
+     * Die UUID und die Version werden hierbei ignoriert und nicht gesetzt.
      *
      * @param dto Das {@code AutohausDTO}, das konvertiert werden soll.
      * @return Eine neue {@code Autohaus}-Instanz basierend auf dem übergebenen DTO.
      */
     @Mapping(target = "autohausId", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Autohaus toAutohaus(AutohausDTO dto);
 
     /**
@@ -0,0 +1,382 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import com.acme.autohaus.entity.Adresse;
+import com.acme.autohaus.entity.Auto;
+import com.acme.autohaus.entity.Autohaus;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import static com.acme.autohaus.controller.AutohausDTO.OnCreate;
+import static com.fasterxml.jackson.databind.cfg.JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+/// Anwenden eines PATCH-Requests als JSON Merge Patch gemäß RFC 7386 oder als JSON Patch gemäß RFC 6902.
+///
+/// Ein Patch wird nicht auf das ganze Autohaus als JSON-Dokument angewandt, sondern nur auf die Properties, die er
+/// betrifft: nur diese werden aus der gespeicherten Version nach JSON übersetzt, geändert, zurück übersetzt und mit
+/// den Constraints von [AutohausDTO] validiert. Die neue Version des Autohauses übernimmt alle übrigen Properties,
+/// z.B. die Liste der Autos, unverändert aus der gespeicherten Version.
+@Component
+final class AutohausPatch {
+    /// Media Type für JSON Merge Patch.
+    static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
+    /// Media Type für JSON Patch.
+    static final String APPLICATION_JSON_PATCH_JSON_VALUE = "application/json-patch+json";
+
+    private static final String NAME = "name";
+    private static final String TELEFONNUMMER = "telefonnummer";
+    private static final String EMAIL = "email";
+    private static final String AUTOS = "autos";
+    private static final String ADRESSE = "adresse";
+    private static final String ENDE_DES_ARRAYS = "-";
+    private static final Set<String> OPERATIONEN = Set.of("add", "remove", "replace", "move", "copy", "test");
+
+    // RFC 6902 Abschnitt 4.6: Zahlen sind gleich, wenn ihre Werte gleich sind, z.B. 100, 100.0 und 1E+2
+    private static final Comparator<JsonNode> GLEICHE_WERTE = (links, rechts) -> {
+        if (links.isNumber() && rechts.isNumber()) {
+            return links.decimalValue().compareTo(rechts.decimalValue());
+        }
+        return links.equals(rechts) ? 0 : 1;
+    };
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    // Request-Body mit Dezimalzahlen als BigDecimal, damit Preise nicht ueber double gerundet werden
+    private final ObjectReader patchReader;
+
+    // Property -> Reader fuer den geaenderten Wert
+    private final Map<String, ObjectReader> reader;
+
+    /// Konstruktor mit _package private_ für _Spring_.
+    ///
+    /// @param objectMapper Der von Spring Boot konfigurierte ObjectMapper.
+    /// @param validator Validator für die geänderten Properties.
+    AutohausPatch(final ObjectMapper objectMapper, final Validator validator) {
+        // Preise unveraendert nach JSON und zurueck uebersetzen, z.B. 100.00 nicht als 1E+2
+        this.objectMapper = objectMapper.copy().configure(STRIP_TRAILING_BIGDECIMAL_ZEROES, false);
+        this.validator = validator;
+        patchReader = this.objectMapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        final var text = this.objectMapper.readerFor(String.class);
+        reader = Map.of(
+            NAME, text,
+            TELEFONNUMMER, text,
+            EMAIL, text,
+            AUTOS, this.objectMapper.readerForListOf(Auto.class),
+            ADRESSE, this.objectMapper.readerFor(Adresse.class)
+        );
+    }
+
+    /// Liest den Request-Body eines PATCH-Requests als JSON, wobei Dezimalzahlen exakt als `BigDecimal` übernommen
+    /// werden.
+    ///
+    /// @param body Der Request-Body.
+    /// @return Der Patch als JSON.
+    /// @throws InvalidPatchException falls der Request-Body kein JSON ist.
+    JsonNode lesen(final byte[] body) {
+        try {
+            return patchReader.readTree(body);
+        } catch (final IOException ex) {
+            throw new InvalidPatchException("Der Patch ist kein gueltiges JSON", BAD_REQUEST);
+        }
+    }
+
+    /// Übersetzt einen JSON Merge Patch in eine Änderung eines Autohauses.
+    ///
+    /// @param patch Der Request-Body, der ein JSON-Objekt sein muss.
+    /// @return Die Änderung, die aus der gespeicherten Version eine neue Version erstellt.
+    /// @throws InvalidPatchException falls der Patch kein JSON-Objekt ist oder unbekannte Properties enthält.
+    UnaryOperator<Autohaus> mergePatch(final JsonNode patch) {
+        if (!(patch instanceof final ObjectNode patchObjekt)) {
+            throw new InvalidPatchException("Ein JSON Merge Patch muss ein JSON-Objekt sein", BAD_REQUEST);
+        }
+        patchObjekt.fieldNames().forEachRemaining(AutohausPatch::property);
+        return autohaus -> {
+            final Map<String, JsonNode> geaendert = HashMap.newHashMap(patchObjekt.size());
+            patchObjekt.properties().forEach(eintrag -> {
+                final var property = eintrag.getKey();
+                final var wert = eintrag.getValue();
+                // Strings und Arrays werden ersetzt, nur die Adresse wird zusammengefuehrt
+                geaendert.put(property, wert.isObject() ? zusammenfuehren(json(autohaus, property), wert) : wert);
+            });
+            return neueVersion(autohaus, geaendert);
+        };
+    }
+
+    /// Übersetzt einen JSON Patch in eine Änderung eines Autohauses.
+    ///
+    /// @param patch Der Request-Body, der ein JSON-Array mit Operationen sein muss.
+    /// @return Die Änderung, die aus der gespeicherten Version eine neue Version erstellt.
+    /// @throws InvalidPatchException falls eine Operation ungültig ist oder eine unbekannte Property betrifft.
+    UnaryOperator<Autohaus> jsonPatch(final JsonNode patch) {
+        if (!patch.isArray()) {
+            throw new InvalidPatchException("Ein JSON Patch muss ein JSON-Array sein", BAD_REQUEST);
+        }
+        final List<Operation> operationen = new ArrayList<>(patch.size());
+        patch.forEach(knoten -> operationen.add(operation(knoten)));
+        return autohaus -> {
+            final var dokument = JsonNodeFactory.instance.objectNode();
+            final Set<String> properties = new HashSet<>();
+            operationen.forEach(operation -> anwenden(operation, dokument, autohaus, properties));
+            final Map<String, JsonNode> geaendert = HashMap.newHashMap(properties.size());
+            // eine entfernte Property hat den Wert null
+            properties.forEach(property -> geaendert.put(property, dokument.get(property)));
+            return neueVersion(autohaus, geaendert);
+        };
+    }
+
+    private record Operation(String op, JsonPointer path, @Nullable JsonPointer from, @Nullable JsonNode value) {
+    }
+
+    private static Operation operation(final JsonNode knoten) {
+        final var op = knoten.path("op").asText();
+        if (!OPERATIONEN.contains(op)) {
+            throw new InvalidPatchException("Ungueltige Operation: " + knoten, BAD_REQUEST);
+        }
+        final var path = pointer(knoten, "path");
+        final var from = "move".equals(op) || "copy".equals(op) ? pointer(knoten, "from") : null;
+        final var value = knoten.get("value");
+        if (value == null && ("add".equals(op) || "replace".equals(op) || "test".equals(op))) {
+            throw new InvalidPatchException("Die Operation " + knoten + " hat keinen Wert", BAD_REQUEST);
+        }
+        property(path);
+        if (from != null) {
+            property(from);
+        }
+        return new Operation(op, path, from, value);
+    }
+
+    private static JsonPointer pointer(final JsonNode knoten, final String name) {
+        final var pfad = knoten.get(name);
+        if (pfad == null || !pfad.isTextual()) {
+            throw new InvalidPatchException("Die Operation " + knoten + " hat kein " + name, BAD_REQUEST);
+        }
+        try {
+            return JsonPointer.compile(pfad.textValue());
+        } catch (final IllegalArgumentException ex) {
+            throw new InvalidPatchException("Ungueltiger Pfad: " + pfad.textValue(), BAD_REQUEST);
+        }
+    }
+
+    // Property des Autohauses, die ein Pfad betrifft
+    private static String property(final JsonPointer pfad) {
+        if (pfad.matches()) {
+            throw new InvalidPatchException("Das Autohaus kann nur property-weise geaendert werden", BAD_REQUEST);
+        }
+        return property(pfad.getMatchingProperty());
+    }
+
+    private static String property(final String property) {
+        return switch (property) {
+            case NAME, TELEFONNUMMER, EMAIL, AUTOS, ADRESSE -> property;
+            default -> throw new InvalidPatchException(
+                "Die Property " + property + " ist nicht aenderbar",
+                BAD_REQUEST
+            );
+        };
+    }
+
+    private void anwenden(
+        final Operation operation,
+        final ObjectNode dokument,
+        final Autohaus autohaus,
+        final Set<String> properties
+    ) {
+        final var path = operation.path();
+        final var from = operation.from();
+        bereitstellen(dokument, path, autohaus);
+        if (from != null) {
+            bereitstellen(dokument, from, autohaus);
+        }
+        switch (operation.op()) {
+            case "add" -> hinzufuegen(dokument, path, operation.value().deepCopy());
+            case "remove" -> entfernen(dokument, path);
+            case "replace" -> {
+                entfernen(dokument, path);
+                hinzufuegen(dokument, path, operation.value().deepCopy());
+            }
+            case "move" -> hinzufuegen(dokument, path, entfernen(dokument, from));
+            case "copy" -> hinzufuegen(dokument, path, lesen(dokument, from).deepCopy());
+            default -> {
+                if (!lesen(dokument, path).equals(GLEICHE_WERTE, operation.value())) {
+                    throw new InvalidPatchException("Der Test fuer " + path + " ist fehlgeschlagen", CONFLICT);
+                }
+                return;
+            }
+        }
+        properties.add(property(path));
+        if (from != null && "move".equals(operation.op())) {
+            properties.add(property(from));
+        }
+    }
+
+    // nur die Properties nach JSON uebersetzen, die der Patch betrifft
+    private void bereitstellen(final ObjectNode dokument, final JsonPointer pfad, final Autohaus autohaus) {
+        final var property = property(pfad);
+        if (!dokument.has(property)) {
+            dokument.set(property, json(autohaus, property));
+        }
+    }
+
+    private static JsonNode lesen(final ObjectNode dokument, final JsonPointer pfad) {
+        final var wert = dokument.at(pfad);
+        if (wert.isMissingNode()) {
+            throw new InvalidPatchException("Der Pfad " + pfad + " existiert nicht", BAD_REQUEST);
+        }
+        return wert;
+    }
+
+    private static void hinzufuegen(final ObjectNode dokument, final JsonPointer pfad, final JsonNode wert) {
+        final var eltern = dokument.at(pfad.head());
+        final var schluessel = pfad.last().getMatchingProperty();
+        if (eltern instanceof final ObjectNode objekt) {
+            objekt.set(schluessel, wert);
+        } else if (eltern instanceof final ArrayNode array) {
+            if (ENDE_DES_ARRAYS.equals(schluessel)) {
+                array.add(wert);
+            } else {
+                array.insert(index(schluessel, array.size() + 1, pfad), wert);
+            }
+        } else {
+            throw new InvalidPatchException("Der Pfad " + pfad.head() + " existiert nicht", BAD_REQUEST);
+        }
+    }
+
+    private static JsonNode entfernen(final ObjectNode dokument, final JsonPointer pfad) {
+        final var eltern = dokument.at(pfad.head());
+        final var schluessel = pfad.last().getMatchingProperty();
+        if (eltern instanceof final ObjectNode objekt && objekt.has(schluessel)) {
+            return objekt.remove(schluessel);
+        }
+        if (eltern instanceof final ArrayNode array) {
+            return array.remove(index(schluessel, array.size(), pfad));
+        }
+        throw new InvalidPatchException("Der Pfad " + pfad + " existiert nicht", BAD_REQUEST);
+    }
+
+    private static int index(final String schluessel, final int grenze, final JsonPointer pfad) {
+        try {
+            final var index = Integer.parseInt(schluessel);
+            if (index >= 0 && index < grenze) {
+                return index;
+            }
+        } catch (final NumberFormatException ex) {
+            // wie ein Index ausserhalb des Arrays
+        }
+        throw new InvalidPatchException("Ungueltiger Index im Pfad " + pfad, BAD_REQUEST);
+    }
+
+    // RFC 7386: null entfernt ein Property, ein Objekt wird rekursiv zusammengefuehrt, alles andere ersetzt
+    private static JsonNode zusammenfuehren(@Nullable final JsonNode ziel, final JsonNode patch) {
+        if (!patch.isObject()) {
+            return patch;
+        }
+        final var ergebnis = ziel instanceof final ObjectNode objekt ? objekt : JsonNodeFactory.instance.objectNode();
+        patch.properties().forEach(eintrag -> {
+            final var property = eintrag.getKey();
+            final var wert = eintrag.getValue();
+            if (wert.isNull()) {
+                ergebnis.remove(property);
+            } else {
+                ergebnis.set(property, zusammenfuehren(ergebnis.get(property), wert));
+            }
+        });
+        return ergebnis;
+    }
+
+    private JsonNode json(final Autohaus autohaus, final String property) {
+        return switch (property) {
+            case NAME -> JsonNodeFactory.instance.textNode(autohaus.getName());
+            case TELEFONNUMMER -> JsonNodeFactory.instance.textNode(autohaus.getTelefonnummer());
+            case EMAIL -> JsonNodeFactory.instance.textNode(autohaus.getEmail());
+            case AUTOS -> objectMapper.valueToTree(autohaus.getAutos());
+            default -> objectMapper.valueToTree(autohaus.getAdresse());
+        };
+    }
+
+    // neue Version mit den geaenderten Properties; nur diese werden validiert
+    private Autohaus neueVersion(final Autohaus autohaus, final Map<String, JsonNode> geaendert) {
+        final Set<ConstraintViolation<?>> verletzungen = new HashSet<>();
+        final var neu = new Autohaus(
+            neuerWert(geaendert, NAME, autohaus.getName(), verletzungen),
+            neuerWert(geaendert, TELEFONNUMMER, autohaus.getTelefonnummer(), verletzungen),
+            autohaus.getUUId(),
+            neuerWert(geaendert, EMAIL, autohaus.getEmail(), verletzungen),
+            neuerWert(geaendert, AUTOS, autohaus.getAutos(), verletzungen),
+            neuerWert(geaendert, ADRESSE, autohaus.getAdresse(), verletzungen)
+        );
+        if (!verletzungen.isEmpty()) {
+            throw new ConstraintViolationException(verletzungen);
+        }
+        return neu;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private <T> T neuerWert(
+        final Map<String, JsonNode> geaendert,
+        final String property,
+        @Nullable final T bisher,
+        final Set<ConstraintViolation<?>> verletzungen
+    ) {
+        if (!geaendert.containsKey(property)) {
+            return bisher;
+        }
+        final var knoten = geaendert.get(property);
+        final T wert;
+        try {
+            wert = knoten == null || knoten.isNull() ? null : (T) reader.get(property).readValue(knoten);
+        } catch (final IOException ex) {
+            throw new InvalidPatchException("Ungueltiger Wert fuer " + property + ": " + knoten, BAD_REQUEST);
+        }
+        verletzungen.addAll(validator.validateValue(AutohausDTO.class, property, wert, Default.class, OnCreate.class));
+        // validateValue kaskadiert nicht: Autos und Adresse wie bei @Valid in AutohausDTO einzeln validieren
+        if (wert instanceof final List<?> autos) {
+            autos.stream()
+                .filter(Objects::nonNull)
+                .forEach(auto -> verletzungen.addAll(validator.validate(auto, Default.class)));
+        } else if (wert instanceof final Adresse adresse) {
+            verletzungen.addAll(validator.validate(adresse, Default.class));
+        }
+        return wert;
+    }
+}
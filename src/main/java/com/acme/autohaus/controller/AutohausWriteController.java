@@ -1,35 +1,60 @@
 package com.acme.autohaus.controller;
 
+import com.acme.autohaus.entity.Autohaus;
 import com.acme.autohaus.service.AutohausWriteService;
+import com.acme.autohaus.service.ConcurrentUpdateException;
 import com.acme.autohaus.service.EmailExistsException;
+import com.acme.autohaus.service.VersionOutdatedException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import jakarta.validation.groups.Default;
+import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.ErrorResponseException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import static com.acme.autohaus.controller.AutohausDTO.OnCreate;
+import static com.acme.autohaus.controller.AutohausImport.Format.CSV;
+import static com.acme.autohaus.controller.AutohausImport.Format.NDJSON;
+import static com.acme.autohaus.controller.AutohausImport.TEXT_CSV_VALUE;
+import static com.acme.autohaus.controller.AutohausPatch.APPLICATION_JSON_PATCH_JSON_VALUE;
+import static com.acme.autohaus.controller.AutohausPatch.APPLICATION_MERGE_PATCH_JSON_VALUE;
 import static com.acme.autohaus.controller.AutohausGetController.API_PATH;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
-import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
+import static org.springframework.http.HttpStatus.PRECONDITION_REQUIRED;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 import static org.springframework.http.ResponseEntity.created;
+import static org.springframework.http.ResponseEntity.noContent;
 
 /**
  * Controller für Schreiboperationen im Autohaus.
@@ -47,21 +72,42 @@ public class AutohausWriteController {
     public static final String PROBLEM_PATH = "/problem";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AutohausWriteController.class);
+    private static final int DEZIMAL = 10;
 
     private final AutohausWriteService autohausWriteService;
 
     private final AutohausMapper autohausMapper;
 
+    private final KonkurrenzProperties konkurrenzProperties;
+
+    private final Validator validator;
+
+    private final AutohausImport autohausImport;
+
+    private final AutohausPatch autohausPatch;
+
     /**
      * Konstruktor für {@link AutohausWriteController}.
      *
      * @param autohausWriteService Service für Schreiboperationen.
      * @param autohausMapper       Mapper für Autohaus-DTOs.
+     * @param konkurrenzProperties Konfiguration, ob {@code If-Match} bei PUT erforderlich ist.
+     * @param validator            Validator für die DTOs eines Batch-Requests.
+     * @param autohausImport       Import von Autohäusern aus einer Datei.
+     * @param autohausPatch        Anwenden von PATCH-Requests.
      */
     AutohausWriteController(final AutohausWriteService autohausWriteService,
-                            final AutohausMapper autohausMapper) {
+                            final AutohausMapper autohausMapper,
+                            final KonkurrenzProperties konkurrenzProperties,
+                            final Validator validator,
+                            final AutohausImport autohausImport,
+                            final AutohausPatch autohausPatch) {
         this.autohausWriteService = autohausWriteService;
         this.autohausMapper = autohausMapper;
+        this.konkurrenzProperties = konkurrenzProperties;
+        this.validator = validator;
+        this.autohausImport = autohausImport;
+        this.autohausPatch = autohausPatch;
     }
 
     /**
@@ -89,26 +135,202 @@ public class AutohausWriteController {
         return created(location).build();
     }
 
+    /**
+     * POST-Handler zum Erstellen vieler neuer Autohäuser mit einem Request, z.B. für ein Händlernetz.
+     * <p>
+     * Die Autohäuser werden parallel validiert. Die E-Mail-Adressen aller gültigen Autohäuser werden gemeinsam
+     * geprüft, auch auf Duplikate innerhalb des Batches, und alle Autohäuser werden in einem gemeinsamen Commit
+     * angelegt. Der Response-Body enthält für jedes Autohaus in der Reihenfolge des Request-Bodys einen
+     * {@link BatchStatus}.
+     * </p>
+     *
+     * @param autohausDTOs DTO-Objekte der Autohäuser.
+     * @return Response mit Statuscode `200` und dem Status je Autohaus.
+     */
+    @PostMapping(path = "/batch", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Viele neue Autohäuser anlegen", tags = "Neuanlegen")
+    @ApiResponse(responseCode = "200", description = "Status je Autohaus")
+    @ApiResponse(responseCode = "400", description = "Syntaktische Fehler im Request-Body")
+    ResponseEntity<List<BatchStatus>> postBatch(@RequestBody final List<AutohausDTO> autohausDTOs) {
+        LOGGER.debug("postBatch: anzahl={}", autohausDTOs.size());
+        // Validierung ist CPU-lastig und unabhaengig je Autohaus; toList() behaelt die Reihenfolge bei
+        final var verletzungen = autohausDTOs.parallelStream()
+            .map(dto -> dto == null
+                ? List.of("Kein Autohaus")
+                : validator.validate(dto, Default.class, OnCreate.class).stream()
+                    .map(verletzung -> verletzung.getPropertyPath() + ": " + verletzung.getMessage())
+                    .sorted()
+                    .toList())
+            .toList();
+
+        final List<Autohaus> gueltige = new ArrayList<>(autohausDTOs.size());
+        for (var i = 0; i < autohausDTOs.size(); i++) {
+            if (verletzungen.get(i).isEmpty()) {
+                gueltige.add(autohausMapper.toAutohaus(autohausDTOs.get(i)));
+            }
+        }
+        final var angelegt = autohausWriteService.createBatch(gueltige).iterator();
+
+        final List<BatchStatus> status = new ArrayList<>(autohausDTOs.size());
+        for (var i = 0; i < autohausDTOs.size(); i++) {
+            if (!verletzungen.get(i).isEmpty()) {
+                status.add(new BatchStatus(i, UNPROCESSABLE_ENTITY.value(), null, verletzungen.get(i)));
+                continue;
+            }
+            final var autohaus = angelegt.next();
+            if (autohaus.isPresent()) {
+                final var location = URI.create(API_PATH + '/' + autohaus.get().getUUId());
+                status.add(new BatchStatus(i, CREATED.value(), location, List.of()));
+            } else {
+                final var fehler = "Die Emailadresse " + autohausDTOs.get(i).email() + " existiert bereits";
+                status.add(new BatchStatus(i, UNPROCESSABLE_ENTITY.value(), null, List.of(fehler)));
+            }
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * POST-Handler zum Importieren sehr vieler Autohäuser aus einer NDJSON- oder CSV-Datei im Request-Body.
+     * <p>
+     * Der Request-Body wird von {@link AutohausImport} zeilenweise gelesen und blockweise parallel angelegt, so dass
+     * auch sehr große Dateien mit begrenztem Speicher importiert werden. Fehlerhafte Zeilen brechen den Import nicht
+     * ab, sondern werden im {@link ImportBericht} gemeldet.
+     * </p>
+     *
+     * @param request HTTP-Request-Objekt mit der Datei als Request-Body.
+     * @return Response mit Statuscode `200` und dem Bericht des Imports.
+     * @throws IOException falls der Request-Body nicht gelesen werden kann.
+     */
+    @PostMapping(
+        path = "/import",
+        consumes = {APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE},
+        produces = APPLICATION_JSON_VALUE
+    )
+    @Operation(summary = "Autohäuser aus einer NDJSON- oder CSV-Datei importieren", tags = "Neuanlegen")
+    @ApiResponse(responseCode = "200", description = "Bericht des Imports")
+    @ApiResponse(responseCode = "400", description = "Kopfzeile der CSV-Datei fehlt oder ist ungültig")
+    ResponseEntity<ImportBericht> postImport(final HttpServletRequest request) throws IOException {
+        final var contentType = MediaType.parseMediaType(request.getContentType());
+        final var format = contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON) ? NDJSON : CSV;
+        LOGGER.debug("postImport: format={}", format);
+        try {
+            return ResponseEntity.ok(autohausImport.importieren(request.getInputStream(), format));
+        } catch (final IllegalArgumentException ex) {
+            throw problem(BAD_REQUEST, ProblemType.BAD_REQUEST, ex.getMessage(), request);
+        }
+    }
+
     /**
      * PUT-Handler zum Aktualisieren eines bestehenden Autohauses.
+     * <p>
+     * Mit dem Header {@code If-Match} und dem ETag aus einem vorherigen GET-Request wird nur aktualisiert, falls das
+     * Autohaus seitdem nicht geändert wurde; {@code If-Match: *} verzichtet auf den Vergleich. Ob der Header
+     * erforderlich ist, wird über {@link KonkurrenzProperties} konfiguriert.
+     * </p>
      *
      * @param id          UUID des zu aktualisierenden Autohauses.
      * @param autohausDTO DTO-Objekt des Autohauses.
+     * @param ifMatch     ETag der gelesenen Version oder {@code null}.
+     * @param request     HTTP-Request-Objekt.
+     * @return Response mit Statuscode `204` und dem ETag der neuen Version.
      */
     @PutMapping(path = "/{id}", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
-    @ResponseStatus(NO_CONTENT)
     @Operation(summary = "Ein Autohaus mit neuen Werten aktualisieren", tags = "Aktualisieren")
     @ApiResponse(responseCode = "204", description = "Aktualisiert")
     @ApiResponse(responseCode = "400", description = "Syntaktische Fehler im Request-Body")
     @ApiResponse(responseCode = "404", description = "Autohaus nicht vorhanden")
+    @ApiResponse(responseCode = "412", description = "Version in If-Match nicht aktuell")
     @ApiResponse(responseCode = "422", description = "Ungültige Werte oder Email vorhanden")
-    void put(
+    @ApiResponse(responseCode = "428", description = "Header If-Match fehlt")
+    ResponseEntity<Void> put(
         @PathVariable final UUID id,
-        @RequestBody final AutohausDTO autohausDTO
+        @RequestBody @Validated final AutohausDTO autohausDTO,
+        @RequestHeader(value = IF_MATCH, required = false) @Nullable final String ifMatch,
+        final HttpServletRequest request
     ) {
-        LOGGER.debug("put: id={}, {}", id, autohausDTO);
+        LOGGER.debug("put: id={}, {}, ifMatch={}", id, autohausDTO, ifMatch);
+        final var version = version(ifMatch, request);
         final var autohausInput = autohausMapper.toAutohaus(autohausDTO);
-        autohausWriteService.update(autohausInput, id);
+        final var autohaus = autohausWriteService.update(autohausInput, id, version);
+        return noContent().eTag(AutohausGetController.etag(autohaus.getVersion())).build();
+    }
+
+    /**
+     * PATCH-Handler zum Ändern einzelner Properties eines bestehenden Autohauses, z.B. der Telefonnummer.
+     * <p>
+     * Der Request-Body ist ein JSON Merge Patch gemäß RFC 7386 oder ein JSON Patch gemäß RFC 6902, z.B.
+     * {@code [{"op": "replace", "path": "/telefonnummer", "value": "0721 123456"}]}. Nur die geänderten Properties
+     * werden übersetzt und validiert, siehe {@link AutohausPatch}. Der Header {@code If-Match} wird wie bei PUT
+     * ausgewertet.
+     * </p>
+     *
+     * @param id      UUID des zu ändernden Autohauses.
+     * @param body    Der Patch als JSON.
+     * @param ifMatch ETag der gelesenen Version oder {@code null}.
+     * @param request HTTP-Request-Objekt.
+     * @return Response mit Statuscode `204` und dem ETag der neuen Version.
+     */
+    @PatchMapping(path = "/{id}", consumes = {APPLICATION_MERGE_PATCH_JSON_VALUE, APPLICATION_JSON_PATCH_JSON_VALUE})
+    @Operation(summary = "Einzelne Properties eines Autohauses ändern", tags = "Aktualisieren")
+    @ApiResponse(responseCode = "204", description = "Aktualisiert")
+    @ApiResponse(responseCode = "400", description = "Syntaktische Fehler im Patch")
+    @ApiResponse(responseCode = "404", description = "Autohaus nicht vorhanden")
+    @ApiResponse(responseCode = "409", description = "Test-Operation fehlgeschlagen oder konkurrierende Änderungen")
+    @ApiResponse(responseCode = "412", description = "Version in If-Match nicht aktuell")
+    @ApiResponse(responseCode = "422", description = "Ungültige Werte oder Email vorhanden")
+    @ApiResponse(responseCode = "428", description = "Header If-Match fehlt")
+    ResponseEntity<Void> patch(
+        @PathVariable final UUID id,
+        @RequestBody final byte[] body,
+        @RequestHeader(value = IF_MATCH, required = false) @Nullable final String ifMatch,
+        final HttpServletRequest request
+    ) {
+        final var patch = autohausPatch.lesen(body);
+        LOGGER.debug("patch: id={}, {}, ifMatch={}", id, patch, ifMatch);
+        final var version = version(ifMatch, request);
+        final var contentType = MediaType.parseMediaType(request.getContentType());
+        final var aenderung = contentType.isCompatibleWith(MediaType.valueOf(APPLICATION_JSON_PATCH_JSON_VALUE))
+            ? autohausPatch.jsonPatch(patch)
+            : autohausPatch.mergePatch(patch);
+        final var autohaus = autohausWriteService.patch(id, aenderung, version);
+        return noContent().eTag(AutohausGetController.etag(autohaus.getVersion())).build();
+    }
+
+    // erwartete Version aus If-Match oder null, falls nicht verglichen werden soll
+    @Nullable
+    private Long version(@Nullable final String ifMatch, final HttpServletRequest request) {
+        if (ifMatch == null) {
+            if (konkurrenzProperties.ifMatchErforderlich()) {
+                throw problem(PRECONDITION_REQUIRED, ProblemType.PRECONDITION, "Der Header If-Match fehlt", request);
+            }
+            return null;
+        }
+        final var etag = ifMatch.strip();
+        if ("*".equals(etag)) {
+            return null;
+        }
+        // nur ein starker ETag der Form "<version>" kann zu einer Version passen
+        if (etag.length() > 2 && etag.charAt(0) == '"' && etag.charAt(etag.length() - 1) == '"') {
+            try {
+                return Long.parseLong(etag, 1, etag.length() - 1, DEZIMAL);
+            } catch (final NumberFormatException ex) {
+                LOGGER.debug("version: ungueltiger ETag {}", etag);
+            }
+        }
+        final var detail = "Der ETag " + etag + " passt zu keiner Version";
+        throw problem(PRECONDITION_FAILED, ProblemType.PRECONDITION, detail, request);
+    }
+
+    private static ErrorResponseException problem(
+        final HttpStatus status,
+        final ProblemType problemType,
+        final String detail,
+        final HttpServletRequest request
+    ) {
+        final var problemDetail = ProblemDetail.forStatusAndDetail(status, detail);
+        problemDetail.setType(URI.create(PROBLEM_PATH + problemType.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return new ErrorResponseException(status, problemDetail, null);
     }
 
     /**
@@ -135,6 +357,47 @@ public class AutohausWriteController {
         return problemDetail;
     }
 
+    /**
+     * ExceptionHandler für {@link ConstraintViolationException}.
+     * Wird ausgelöst, wenn die durch einen PATCH-Request geänderten Properties ungültig sind.
+     *
+     * @param ex      Die ausgelöste Exception.
+     * @param request HTTP-Request-Objekt.
+     * @return ProblemDetail-Objekt mit Details zur Validierungsverletzung.
+     */
+    @ExceptionHandler
+    ProblemDetail onConstraintViolations(
+        final ConstraintViolationException ex,
+        final HttpServletRequest request
+    ) {
+        LOGGER.debug("onConstraintViolations: {}", ex.getMessage());
+        final var detail = ex.getConstraintViolations().stream()
+            .map(verletzung -> verletzung.getPropertyPath() + ": " + verletzung.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+        final var problemDetail = ProblemDetail.forStatusAndDetail(UNPROCESSABLE_ENTITY, detail);
+        problemDetail.setType(URI.create(PROBLEM_PATH + ProblemType.CONSTRAINTS.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return problemDetail;
+    }
+
+    /**
+     * ExceptionHandler für {@link InvalidPatchException}.
+     * Wird ausgelöst, wenn ein PATCH-Request ungültig ist oder eine Test-Operation fehlschlägt.
+     *
+     * @param ex      Die ausgelöste Exception.
+     * @param request HTTP-Request-Objekt.
+     * @return ProblemDetail-Objekt mit Statuscode `400` bzw. `409`.
+     */
+    @ExceptionHandler
+    ProblemDetail onInvalidPatch(final InvalidPatchException ex, final HttpServletRequest request) {
+        LOGGER.debug("onInvalidPatch: {}", ex.getMessage());
+        final var problemDetail = ProblemDetail.forStatusAndDetail(ex.getStatus(), ex.getMessage());
+        problemDetail.setType(URI.create(PROBLEM_PATH + ProblemType.BAD_REQUEST.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return problemDetail;
+    }
+
     /**
      * ExceptionHandler für {@link EmailExistsException}.
      * Wird ausgelöst, wenn die Email-Adresse bereits existiert.
@@ -152,6 +415,40 @@ public class AutohausWriteController {
         return problemDetail;
     }
 
+    /**
+     * ExceptionHandler für {@link VersionOutdatedException}.
+     * Wird ausgelöst, wenn das Autohaus seit dem Lesen der Version im Header {@code If-Match} geändert wurde.
+     *
+     * @param ex      Die ausgelöste Exception.
+     * @param request HTTP-Request-Objekt.
+     * @return ProblemDetail-Objekt mit Statuscode `412`.
+     */
+    @ExceptionHandler
+    ProblemDetail onVersionOutdated(final VersionOutdatedException ex, final HttpServletRequest request) {
+        LOGGER.debug("onVersionOutdated: {}", ex.getMessage());
+        final var problemDetail = ProblemDetail.forStatusAndDetail(PRECONDITION_FAILED, ex.getMessage());
+        problemDetail.setType(URI.create(PROBLEM_PATH + ProblemType.PRECONDITION.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return problemDetail;
+    }
+
+    /**
+     * ExceptionHandler für {@link ConcurrentUpdateException}.
+     * Wird ausgelöst, wenn ein PATCH ohne {@code If-Match} wiederholt von konkurrierenden Änderungen überholt wurde.
+     *
+     * @param ex      Die ausgelöste Exception.
+     * @param request HTTP-Request-Objekt.
+     * @return ProblemDetail-Objekt mit Statuscode `409`.
+     */
+    @ExceptionHandler
+    ProblemDetail onConcurrentUpdate(final ConcurrentUpdateException ex, final HttpServletRequest request) {
+        LOGGER.debug("onConcurrentUpdate: {}", ex.getMessage());
+        final var problemDetail = ProblemDetail.forStatusAndDetail(CONFLICT, ex.getMessage());
+        problemDetail.setType(URI.create(PROBLEM_PATH + ProblemType.CONFLICT.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return problemDetail;
+    }
+
     /**
      * ExceptionHandler für {@link HttpMessageNotReadableException}.
      * Wird ausgelöst, wenn der Request-Body syntaktisch ungültig ist.
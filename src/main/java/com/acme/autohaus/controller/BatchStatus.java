@@ -0,0 +1,32 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import java.net.URI;
+import java.util.List;
+import org.springframework.lang.Nullable;
+
+/**
+ * Ergebnis für ein einzelnes Autohaus eines Batch-Requests.
+ *
+ * @param index Position des Autohauses im Request-Body.
+ * @param status Statuscode wie bei einem einzelnen POST-Request, d.h. {@code 201} oder {@code 422}.
+ * @param location URI des angelegten Autohauses oder {@code null}.
+ * @param fehler Fehlermeldungen, falls das Autohaus nicht angelegt wurde.
+ */
+public record BatchStatus(int index, int status, @Nullable URI location, List<String> fehler) {
+}
@@ -16,18 +16,31 @@
  */
 package com.acme.autohaus.controller;
 
+import com.acme.autohaus.service.InvalidCursorException;
 import com.acme.autohaus.service.NotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ProblemDetail;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import static com.acme.autohaus.controller.AutohausWriteController.PROBLEM_PATH;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 /// Handler für allgemeine Exceptions.
 @ControllerAdvice
 class CommonExceptionHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(CommonExceptionHandler.class);
+    private static final long NOT_FOUND_LOG_INTERVALL = TimeUnit.SECONDS.toNanos(1);
+
+    // fruehester Zeitpunkt nach System.nanoTime() fuer die naechste Meldung auf INFO
+    private final AtomicLong naechsteNotFoundMeldung = new AtomicLong(System.nanoTime());
+    private final AtomicLong unterdrueckteNotFound = new AtomicLong();
 
     /// Konstruktor mit _package private_ für _Spring_.
     CommonExceptionHandler() {
@@ -35,10 +48,35 @@ class CommonExceptionHandler {
 
     /// [ExceptionHandler], wenn ein Kunde gesucht wird, aber nicht vorhanden ist.
     ///
+    /// Höchstens eine Meldung je Sekunde wird auf INFO protokolliert, zusammen mit der Anzahl der seitdem nur auf
+    /// DEBUG protokollierten Meldungen, damit z.B. Scraper mit nicht vorhandenen IDs das Log nicht fluten.
+    ///
     /// @param ex Die zugehörige [NotFoundException].
     @ExceptionHandler
     @ResponseStatus(NOT_FOUND)
     void onNotFound(final NotFoundException ex) {
-        LOGGER.info("onNotFound: {}", ex.getMessage());
+        final var jetzt = System.nanoTime();
+        final var faellig = naechsteNotFoundMeldung.get();
+        if (jetzt - faellig >= 0 && naechsteNotFoundMeldung.compareAndSet(faellig, jetzt + NOT_FOUND_LOG_INTERVALL)) {
+            LOGGER.info("onNotFound: {} ({} weitere seit der letzten Meldung)",
+                ex.getMessage(), unterdrueckteNotFound.getAndSet(0));
+            return;
+        }
+        unterdrueckteNotFound.incrementAndGet();
+        LOGGER.debug("onNotFound: {}", ex.getMessage());
+    }
+
+    /// [ExceptionHandler], wenn mit einem ungültigen Cursor geblättert wird.
+    ///
+    /// @param ex Die zugehörige [InvalidCursorException].
+    /// @param request HTTP-Request-Objekt.
+    /// @return ProblemDetail-Objekt mit Statuscode `400`.
+    @ExceptionHandler
+    ProblemDetail onInvalidCursor(final InvalidCursorException ex, final HttpServletRequest request) {
+        LOGGER.debug("onInvalidCursor: {}", ex.getMessage());
+        final var problemDetail = ProblemDetail.forStatusAndDetail(BAD_REQUEST, ex.getMessage());
+        problemDetail.setType(URI.create(PROBLEM_PATH + ProblemType.BAD_REQUEST.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return problemDetail;
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Konfiguration des Exports aller Autohäuser aus {@code app.export.*}.
+ *
+ * @param verzeichnis Verzeichnis für die komprimierten Exportdateien.
+ * @param intervall Abstand, in dem geprüft wird, ob sich der Bestand geändert hat und neu exportiert werden muss.
+ */
+@ConfigurationProperties(prefix = "app.export")
+public record ExportProperties(
+    @DefaultValue("/tmp/autohaus-export")
+    Path verzeichnis,
+
+    @DefaultValue("10s")
+    Duration intervall
+) {
+}
@@ -0,0 +1,34 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import java.util.List;
+
+/// Ergebnis eines Imports mit [AutohausImport].
+///
+/// @param zeilen Anzahl der gelesenen, nicht leeren Datenzeilen.
+/// @param angelegt Anzahl der angelegten Autohäuser.
+/// @param fehlerhaft Anzahl der Zeilen, aus denen kein Autohaus angelegt wurde.
+/// @param fehler Fehler der höchstens 100 fehlerhaften Zeilen mit den kleinsten Zeilennummern, aufsteigend.
+public record ImportBericht(long zeilen, long angelegt, long fehlerhaft, List<Fehler> fehler) {
+    /// Fehler einer einzelnen Zeile.
+    ///
+    /// @param zeile Zeilennummer in der Datei, beginnend mit 1.
+    /// @param meldung Fehlermeldung.
+    public record Fehler(long zeile, String meldung) {
+    }
+}
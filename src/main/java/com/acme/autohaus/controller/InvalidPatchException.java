@@ -0,0 +1,44 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import org.springframework.http.HttpStatus;
+
+/// Exception, falls ein PATCH-Request syntaktisch ungültig ist oder nicht auf das Autohaus angewandt werden kann.
+final class InvalidPatchException extends RuntimeException {
+    /// Statuscode für die Response.
+    private final HttpStatus status;
+
+    /// Konstruktor mit der Fehlermeldung und dem Statuscode.
+    ///
+    /// @param message Die Fehlermeldung.
+    /// @param status Der Statuscode, i.d.R. `400` oder `409` für eine fehlgeschlagene `test`-Operation.
+    InvalidPatchException(
+        final String message,
+        @SuppressWarnings("ParameterHidesMemberVariable") final HttpStatus status
+    ) {
+        super(message);
+        this.status = status;
+    }
+
+    /// Statuscode für die Response ermitteln.
+    ///
+    /// @return Der Statuscode.
+    HttpStatus getStatus() {
+        return status;
+    }
+}
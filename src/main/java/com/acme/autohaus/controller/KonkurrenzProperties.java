@@ -0,0 +1,33 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Konfiguration für konkurrierende Schreibzugriffe aus {@code app.konkurrenz.*}.
+ *
+ * @param ifMatchErforderlich Flag, ob PUT-Requests den Header {@code If-Match} mit der gelesenen Version enthalten
+ *                            müssen; ohne Header wird dann mit Statuscode {@code 428} geantwortet.
+ */
+@ConfigurationProperties(prefix = "app.konkurrenz")
+public record KonkurrenzProperties(
+    @DefaultValue("false")
+    boolean ifMatchErforderlich
+) {
+}
@@ -31,7 +31,10 @@ enum ProblemType {
     PRECONDITION("precondition"),
 
     /// Fehler bei z.B. einer Patch-Operation.
-    BAD_REQUEST("badRequest");
+    BAD_REQUEST("badRequest"),
+
+    /// Fehler bei konkurrierenden Aktualisierungen.
+    CONFLICT("conflict");
 
     private final String value;
 
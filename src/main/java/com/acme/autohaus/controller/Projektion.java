@@ -0,0 +1,262 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import com.acme.autohaus.entity.Adresse;
+import com.acme.autohaus.entity.Auto;
+import com.acme.autohaus.entity.Autohaus;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+
+/// Sparse Fieldsets für die GET-Endpunkte: mit dem Query-Parameter `fields`, z.B. `fields=name,email,autos.marke`,
+/// werden nur die angegebenen Properties von [Autohaus], [Auto] und [Adresse] serialisiert. Ein Pfad ohne
+/// Unterpfade wie `autos` liefert das Property vollständig.
+///
+/// Jede verschiedene Menge von Feldern wird einmal zu einem Baum der erlaubten Pfade und einem [FilterProvider]
+/// übersetzt und zwischengespeichert. Der Filter ist über Mixins nur an die Entity-Klassen einer Kopie des
+/// ObjectMapper gebunden, so dass die Entities keine Annotationen für Jackson benötigen und Responses ohne `fields`
+/// sowie alle übrigen Serialisierungen, z.B. Export und [AutohausJsonCache], ungefiltert bleiben.
+@ControllerAdvice(assignableTypes = AutohausGetController.class)
+final class Projektion extends AbstractMappingJacksonResponseBodyAdvice {
+    /// Name des Query-Parameters.
+    static final String FIELDS = "fields";
+
+    private static final String FILTER_ID = "projektion";
+    private static final int MAX_PROJEKTIONEN = 256;
+
+    private final ObjectMapper objectMapper;
+
+    // Kopie des ObjectMapper mit dem Filter an den Entity-Klassen, nur fuer Requests mit fields
+    private final ObjectMapper gefiltert;
+
+    // normalisierte Felder -> uebersetzter Filter
+    private final ConcurrentMap<String, FilterProvider> projektionen = new ConcurrentHashMap<>();
+
+    /// Konstruktor mit _package private_ für _Spring_.
+    ///
+    /// @param objectMapper Der von Spring Boot konfigurierte ObjectMapper.
+    Projektion(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        gefiltert = objectMapper.copy()
+            .addMixIn(Autohaus.class, Gefiltert.class)
+            .addMixIn(Auto.class, Gefiltert.class)
+            .addMixIn(Adresse.class, Gefiltert.class);
+    }
+
+    @Override
+    protected void beforeBodyWriteInternal(
+        final MappingJacksonValue bodyContainer,
+        final MediaType contentType,
+        final MethodParameter returnType,
+        final ServerHttpRequest request,
+        final ServerHttpResponse response
+    ) {
+        if (request instanceof final ServletServerHttpRequest servletRequest) {
+            final var felder = felder(servletRequest.getServletRequest());
+            if (felder == null) {
+                return;
+            }
+            // gefiltert in einen Puffer schreiben, den der ObjectMapper der Response nur noch abspielt
+            final var puffer = new TokenBuffer(gefiltert, false);
+            try {
+                gefiltert.writer(filterProvider(felder)).writeValue(puffer, bodyContainer.getValue());
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            bodyContainer.setValue(puffer);
+        }
+    }
+
+    /// [ObjectWriter] für gestreamte Responses, der nur die Felder des Requests schreibt und nicht nach jedem
+    /// Objekt leert. Objekte auf oberster Ebene werden wie bei NDJSON durch einen Zeilenumbruch getrennt.
+    ///
+    /// @param request Der Request mit dem evtl. vorhandenen Query-Parameter `fields`.
+    /// @return Der ObjectWriter.
+    ObjectWriter writer(final HttpServletRequest request) {
+        final var felder = felder(request);
+        final var writer = felder == null ? objectMapper.writer() : gefiltert.writer(filterProvider(felder));
+        return writer.without(FLUSH_AFTER_WRITE_VALUE)
+            .withRootValueSeparator("\n");
+    }
+
+    // Felder sortiert, ohne Duplikate und Leerzeichen, damit gleiche Mengen denselben Eintrag im Cache verwenden
+    @Nullable
+    private static String felder(final HttpServletRequest request) {
+        final var werte = request.getParameterValues(FIELDS);
+        if (werte == null) {
+            return null;
+        }
+        return Arrays.stream(werte)
+            .flatMap(wert -> Arrays.stream(wert.split(",")))
+            .map(String::strip)
+            .filter(feld -> !feld.isEmpty())
+            .distinct()
+            .sorted()
+            .collect(Collectors.joining(","));
+    }
+
+    private FilterProvider filterProvider(final String felder) {
+        final var filterProvider = projektionen.get(felder);
+        if (filterProvider != null) {
+            return filterProvider;
+        }
+        final var neu = new SimpleFilterProvider().addFilter(FILTER_ID, new PfadFilter(Knoten.uebersetzen(felder)));
+        // beliebige Werte von Clients duerfen den Cache nicht unbegrenzt wachsen lassen
+        if (projektionen.size() >= MAX_PROJEKTIONEN) {
+            return neu;
+        }
+        final var vorhanden = projektionen.putIfAbsent(felder, neu);
+        return vorhanden == null ? neu : vorhanden;
+    }
+
+    /// Mixin, das den Filter an eine Entity-Klasse bindet.
+    @JsonFilter(FILTER_ID)
+    private interface Gefiltert {
+    }
+
+    /// Knoten im Baum der erlaubten Pfade.
+    private static final class Knoten {
+        // Unterpfad ohne weitere Einschraenkung
+        private static final Knoten ALLES = new Knoten();
+
+        private final Map<String, Knoten> kinder = new HashMap<>();
+
+        static Knoten uebersetzen(final String felder) {
+            final var wurzel = new Knoten();
+            for (final var feld : felder.split(",")) {
+                if (feld.isEmpty()) {
+                    continue;
+                }
+                var knoten = wurzel;
+                final var namen = feld.split("\\.");
+                for (var i = 0; i < namen.length && knoten != ALLES; i++) {
+                    final var letzter = i == namen.length - 1;
+                    final var kind = knoten.kinder.get(namen[i]);
+                    if (letzter) {
+                        knoten.kinder.put(namen[i], ALLES);
+                    } else if (kind == null) {
+                        final var neu = new Knoten();
+                        knoten.kinder.put(namen[i], neu);
+                        knoten = neu;
+                    } else {
+                        knoten = kind;
+                    }
+                }
+            }
+            return wurzel;
+        }
+
+        @Nullable
+        Knoten kind(final String name) {
+            return this == ALLES ? ALLES : kinder.get(name);
+        }
+    }
+
+    /// [SimpleBeanPropertyFilter], der ein Property nur schreibt, wenn sein Pfad im Baum enthalten ist. Der Knoten
+    /// des aktuellen Objekts wird einmal je Objekt aus dem Knoten des umgebenden Objekts und dem Ausgabekontext des
+    /// [JsonGenerator] ermittelt; Arrays zählen nicht mit. Die Knoten der offenen Objekte stehen je
+    /// Verschachtelungstiefe in einem Attribut des [SerializerProvider], der nur für eine Serialisierung gilt.
+    private static final class PfadFilter extends SimpleBeanPropertyFilter {
+        private static final int TIEFE = 8;
+
+        private final Knoten wurzel;
+
+        PfadFilter(final Knoten wurzel) {
+            this.wurzel = wurzel;
+        }
+
+        @Override
+        public void serializeAsField(
+            final Object pojo,
+            final JsonGenerator generator,
+            final SerializerProvider provider,
+            final PropertyWriter writer
+        ) throws Exception {
+            final var knoten = knoten(pojo, generator.getOutputContext(), provider);
+            if (knoten != null && knoten.kind(writer.getName()) != null) {
+                writer.serializeAsField(pojo, generator, provider);
+            } else if (!generator.canOmitFields()) {
+                writer.serializeAsOmittedField(pojo, generator, provider);
+            }
+        }
+
+        // Knoten des Objekts, dessen Properties gerade geschrieben werden; null, falls es nicht geschrieben wird
+        @Nullable
+        private Knoten knoten(final Object pojo, final JsonStreamContext kontext, final SerializerProvider provider) {
+            var ebenen = (Ebene[]) provider.getAttribute(this);
+            final var tiefe = kontext.getNestingDepth();
+            if (ebenen == null || tiefe >= ebenen.length) {
+                ebenen = ebenen == null ? new Ebene[Math.max(TIEFE, tiefe + 1)] : Arrays.copyOf(ebenen, 2 * tiefe);
+                provider.setAttribute(this, ebenen);
+            }
+            final var ebene = ebenen[tiefe];
+            // weitere Properties desselben Objekts
+            if (ebene != null && ebene.pojo() == pojo) {
+                return ebene.knoten();
+            }
+
+            var eltern = kontext.getParent();
+            while (eltern != null && eltern.inArray()) {
+                eltern = eltern.getParent();
+            }
+            final Knoten knoten;
+            if (eltern == null || eltern.inRoot()) {
+                knoten = wurzel;
+            } else {
+                // das umgebende Objekt hat bereits mindestens ein Property geschrieben, naemlich dieses Objekt
+                final var umgebend = ebenen[eltern.getNestingDepth()];
+                knoten = umgebend == null || umgebend.knoten() == null
+                    ? null
+                    : umgebend.knoten().kind(eltern.getCurrentName());
+            }
+            ebenen[tiefe] = new Ebene(pojo, knoten);
+            return knoten;
+        }
+    }
+
+    // Objekt, dessen Properties auf einer Verschachtelungstiefe zuletzt geschrieben wurden, und sein Knoten
+    private record Ebene(Object pojo, @Nullable Knoten knoten) {
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.acme.autohaus.entity;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import java.math.BigDecimal;
 import java.util.Objects;
 import java.util.UUID;
@@ -28,11 +30,19 @@ import java.util.UUID;
  * </p>
  */
 public class Auto {
+    /**
+     * Höchster zulässiger Preis, damit der Preis in Cent als {@code long} darstellbar ist.
+     */
+    public static final String MAX_PREIS = "92233720368547758.07";
+
     private UUID autoId;
     private String marke;
     private String modell;
     private int baujahr;
     private String besitzer;
+
+    @DecimalMin("0.0")
+    @DecimalMax(MAX_PREIS)
     private BigDecimal preis;
 
     /**
@@ -15,6 +15,7 @@
  */
 package com.acme.autohaus.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -30,6 +31,7 @@ public class Autohaus {
     private UUID autohausId;
     private final List<Auto> autos;
     private final Adresse adresse;
+    private long version;
 
     /**
      * Konstruktor zur Initialisierung eines Autohauses mit spezifischen Eigenschaften und leeren Listen.
@@ -152,6 +154,26 @@ public class Autohaus {
         return adresse;
     }
 
+    /**
+     * Gibt die Version des Autohauses zurück, die bei jeder Änderung erhöht wird. Die Version wird nicht im
+     * Response-Body, sondern als ETag ausgeliefert.
+     *
+     * @return Die Version des Autohauses.
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Setzt die Version des Autohauses.
+     *
+     * @param version Die Version des Autohauses.
+     */
+    public void setVersion(final long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Autohaus{" +
@@ -159,6 +181,7 @@ public class Autohaus {
             ", telefonnummer='" + telefonnummer + '\'' +
             ", UUID='" + autohausId + '\'' +
             ", email='" + email + '\'' +
+            ", version=" + version +
             ", autos=" + autos +
             ", mitarbeiter=" + adresse +
             '}';
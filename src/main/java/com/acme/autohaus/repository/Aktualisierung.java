@@ -0,0 +1,44 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+/**
+ * Ergebnis von {@link AutohausRepository#update}.
+ */
+public enum Aktualisierung {
+    /**
+     * Das Autohaus wurde mit einer neuen Version gespeichert.
+     */
+    AKTUALISIERT,
+
+    /**
+     * Es gibt kein Autohaus mit der ID.
+     */
+    NICHT_VORHANDEN,
+
+    /**
+     * Die neue E-Mail-Adresse gehört bereits zu einem anderen Autohaus.
+     */
+    EMAIL_VORHANDEN,
+
+    /**
+     * Die gespeicherte Version weicht von der erwarteten Version ab, d.h. das Autohaus wurde zwischenzeitlich
+     * geändert.
+     */
+    VERSION_VERALTET
+}
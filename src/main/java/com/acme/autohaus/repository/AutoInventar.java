@@ -0,0 +1,979 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import com.acme.autohaus.entity.Auto;
+import com.acme.autohaus.entity.Autohaus;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Spaltenorientierter Bestand aller Autos der gespeicherten Autohäuser.
+ * <p>
+ * Jedes Auto belegt eine Zeile mit fortlaufender Nummer. Die Attribute liegen in primitiven Arrays je Spalte:
+ * die UUID des Autohauses als Paar von {@code long}-Werten, das Baujahr als {@code int}, der Preis als {@code long}
+ * in Cent und Marke, Modell, Besitzer sowie Stadt und Postleitzahl des Autohauses als Codes eines Wörterbuchs.
+ * Prüfungen über Preis oder Baujahr laufen dadurch über primitive Arrays, ohne ein einziges {@link Auto}-Objekt
+ * anzufassen. Das Inventar liefert nur Zeilen und die IDs der zugehörigen Autohäuser; ausgegeben werden immer die
+ * Autohäuser aus dem {@link AutohausStore}.
+ * </p>
+ * <p>
+ * Zusammen mit den Spalten werden Sekundärindexe gepflegt: die Wörterbücher der kategorischen Spalten dienen
+ * als Hash-Index vom Code auf die {@link ZeilenListe} der Autos mit diesem Wert, für Baujahr und Preis gibt es
+ * sortierte Indexe als Skip-Listen, so dass Bereichsabfragen nur die passenden Schlüssel besuchen. Für Marke, Stadt
+ * und Postleitzahl mit wenigen verschiedenen Werten gibt es zusätzlich je Wert eine komprimierte {@link Bitmap}, so
+ * dass kombinierte Filter und Facetten als Bitmap-Verknüpfungen berechnet werden.
+ * </p>
+ * <p>
+ * Ebenso werden die {@link AutoStatistik Kennzahlen} aller Autos und je Autohaus bei jedem Schreibzugriff um die
+ * angehängten bzw. gelöschten Zeilen fortgeschrieben und als unveränderliche Objekte veröffentlicht.
+ * </p>
+ * <p>
+ * Beim Ändern eines Autohauses werden zuerst die Zeilen der neuen Autos angehängt und danach die bisherigen Zeilen
+ * als gelöscht markiert. Ein paralleler Lesezugriff sieht deshalb u.U. kurzzeitig beide Stände, aber nie keinen;
+ * Treffer müssen gegen die aktuelle Version im {@link AutohausStore} geprüft werden. Ist danach mindestens die Hälfte
+ * aller Zeilen gelöscht, werden die übrigen Zeilen lückenlos neu nummeriert und Spalten und Indexe neu aufgebaut,
+ * so dass der Bestand bei vielen Änderungen nicht unbegrenzt wächst.
+ * </p>
+ * <p>
+ * Schreibende Zugriffe werden über eine interne Sperre serialisiert. Lesende Zugriffe lesen zuerst die Anzahl der
+ * Zeilen und danach die Spalten, damit die Spalten mindestens so neu sind. Die Bitmaps werden an Ort und Stelle
+ * verändert und deshalb zusätzlich durch eine Lese-/Schreibsperre geschützt, die jeweils nur kurz gehalten wird.
+ * Zeilennummern sind nur bis zum nächsten Kompaktieren gültig; wer Zeilen liest und danach Spalten zu diesen Zeilen
+ * liest, muss dies deshalb innerhalb von {@link #lesen(Supplier)} tun.
+ * </p>
+ */
+final class AutoInventar {
+    /**
+     * Code für einen nicht vorhandenen Wert im Wörterbuch.
+     */
+    static final int KEIN_CODE = -1;
+
+    /**
+     * Preis in Cent, falls ein Auto keinen Preis hat.
+     */
+    static final long KEIN_PREIS = Long.MIN_VALUE;
+
+    private static final int INITIALE_KAPAZITAET = 64;
+
+    // kleinere Bestaende werden nie kompaktiert
+    private static final int MIN_KOMPAKTIEREN = 1024;
+    private static final int CENT_STELLEN = 2;
+
+    // 64 Zeilen je Wort der Loeschmarkierungen
+    private static final int WORT_SHIFT = 6;
+
+    // Woerter der Loeschmarkierungen mit Release-/Acquire-Semantik
+    private static final VarHandle WORT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final Kategorie[] KATEGORIEN = Kategorie.values();
+
+    private final Lock lock = new ReentrantLock();
+    private final ReadWriteLock bitmapSperre = new ReentrantReadWriteLock();
+    // Schreibsperre nur beim Kompaktieren, weil sich dabei die Zeilennummern aendern
+    private final ReadWriteLock kompaktierSperre = new ReentrantReadWriteLock();
+
+    // je kategorischer Spalte ein Woerterbuch; Index ist die Ordinalzahl der Kategorie
+    private final Woerterbuch[] woerterbuecher = Arrays.stream(KATEGORIEN)
+        .map(kategorie -> new Woerterbuch(kategorie.mitBitmap))
+        .toArray(Woerterbuch[]::new);
+
+    // sortierte Indexe: Baujahr bzw. Preis in Cent -> Zeilen der Autos mit diesem Wert
+    private final NavigableMap<Integer, ZeilenListe> baujahrIndex = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Long, ZeilenListe> preisIndex = new ConcurrentSkipListMap<>();
+
+    // ID eines Autohauses -> Zeilen seiner aktuellen Autos
+    private final ConcurrentMap<UUID, int[]> zeilenJeAutohaus = new ConcurrentHashMap<>();
+
+    // Kennzahlen aller Autos; nur unter der Sperre fortschreiben
+    private final Aggregat gesamt = new Aggregat();
+    private volatile AutoStatistik gesamtStatistik = gesamt.statistik(KEIN_PREIS, KEIN_PREIS);
+
+    // ID eines Autohauses -> Kennzahlen seiner aktuellen Autos
+    private final ConcurrentMap<UUID, AutoStatistik> statistikJeAutohaus = new ConcurrentHashMap<>();
+
+    private volatile Spalten spalten = new Spalten(INITIALE_KAPAZITAET);
+    private volatile int anzahl;
+
+    // Anzahl der als geloescht markierten Zeilen; nur unter der Sperre
+    private int geloeschteZeilen;
+
+    /**
+     * Erstellt einen leeren Bestand.
+     */
+    AutoInventar() {
+    }
+
+    /**
+     * Berechnet die Zellen der Autos eines Autohauses, ohne den Bestand zu verändern.
+     * <p>
+     * Alle Umrechnungen, die fehlschlagen können, erfolgen hier. Das Eintragen der Zellen mit
+     * {@link #einfuegen(Zellen)} oder {@link #ersetzen(Zellen)} kann danach nicht mehr fehlschlagen, so dass Spalten
+     * und Indexe nie nur teilweise verändert werden.
+     * </p>
+     *
+     * @param autohaus das Autohaus mit gesetzter ID.
+     * @return die Zellen.
+     * @throws IllegalArgumentException falls ein Preis nicht in Cent als {@code long} darstellbar ist.
+     */
+    static Zellen zellen(final Autohaus autohaus) {
+        final List<Auto> autos = autohaus.getAutos() == null ? List.of() : autohaus.getAutos();
+        final var baujahr = new int[autos.size()];
+        final var preisCent = new long[autos.size()];
+        final var werte = new String[KATEGORIEN.length][autos.size()];
+        for (var i = 0; i < baujahr.length; i++) {
+            final var auto = autos.get(i);
+            baujahr[i] = auto.getBaujahr();
+            try {
+                preisCent[i] = cent(auto.getPreis());
+            } catch (final ArithmeticException ex) {
+                throw new IllegalArgumentException("Ungueltiger Preis: " + auto.getPreis(), ex);
+            }
+            for (final var kategorie : KATEGORIEN) {
+                werte[kategorie.ordinal()][i] = kategorie.attribut.apply(autohaus, auto);
+            }
+        }
+        return new Zellen(autohaus.getUUId(), baujahr, preisCent, werte);
+    }
+
+    /**
+     * Trägt die Autos eines neuen Autohauses ein.
+     *
+     * @param zellen die Zellen des Autohauses aus {@link #zellen(Autohaus)}.
+     */
+    void einfuegen(final Zellen zellen) {
+        einfuegen(List.of(zellen));
+    }
+
+    /**
+     * Trägt die Autos mehrerer neuer Autohäuser ein, wobei die Sperren nur einmal angefordert werden.
+     *
+     * @param autohaeuser die Zellen der Autohäuser aus {@link #zellen(Autohaus)}.
+     */
+    void einfuegen(final Collection<Zellen> autohaeuser) {
+        lock.lock();
+        bitmapSperre.writeLock().lock();
+        try {
+            for (final var autohaus : autohaeuser) {
+                final var zeilen = anhaengen(autohaus);
+                zeilenJeAutohaus.put(autohaus.id(), zeilen);
+                statistikJeAutohaus.put(autohaus.id(), zaehlen(zeilen));
+            }
+            gesamtStatistik = gesamtStatistik();
+        } finally {
+            bitmapSperre.writeLock().unlock();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ersetzt die Autos eines vorhandenen Autohauses durch die Autos seiner neuen Version.
+     *
+     * @param autohaus die Zellen der neuen Version aus {@link #zellen(Autohaus)}.
+     */
+    void ersetzen(final Zellen autohaus) {
+        lock.lock();
+        try {
+            bitmapSperre.writeLock().lock();
+            try {
+                final var neueZeilen = anhaengen(autohaus);
+                final var alteZeilen = zeilenJeAutohaus.put(autohaus.id(), neueZeilen);
+                statistikJeAutohaus.put(autohaus.id(), zaehlen(neueZeilen));
+                if (alteZeilen != null) {
+                    final var s = spalten;
+                    for (final var zeile : alteZeilen) {
+                        final var wort = zeile >>> WORT_SHIFT;
+                        WORT.setRelease(s.geloescht, wort, (long) WORT.getAcquire(s.geloescht, wort) | 1L << zeile);
+                    }
+                    // erst nach dem Markieren austragen, damit beim Kompaktieren die geloeschten Zeilen wegfallen
+                    for (final var zeile : alteZeilen) {
+                        austragen(s, zeile);
+                        zaehlen(gesamt, s, zeile, -1);
+                    }
+                    geloeschteZeilen += alteZeilen.length;
+                }
+                gesamtStatistik = gesamtStatistik();
+            } finally {
+                bitmapSperre.writeLock().unlock();
+            }
+            if (anzahl >= MIN_KOMPAKTIEREN && geloeschteZeilen >= anzahl / 2) {
+                kompaktieren();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Führt einen Lesezugriff aus, während dem die Zeilennummern gültig bleiben.
+     * <p>
+     * Zeilennummern aus einem Index dürfen nur innerhalb desselben Aufrufs zum Lesen der Spalten verwendet werden.
+     * Das Ergebnis darf deshalb keine Zeilennummern und keine unverbrauchten Streams enthalten. Neue Zeilen können
+     * währenddessen weiterhin angehängt werden.
+     * </p>
+     *
+     * @param <T> der Typ des Ergebnisses.
+     * @param zugriff der Lesezugriff.
+     * @return das Ergebnis des Lesezugriffs.
+     */
+    <T> T lesen(final Supplier<T> zugriff) {
+        kompaktierSperre.readLock().lock();
+        try {
+            return zugriff.get();
+        } finally {
+            kompaktierSperre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obergrenze der Zeilennummern einschließlich gelöschter Zeilen.
+     *
+     * @return die Anzahl der bisher angehängten Zeilen.
+     */
+    int anzahl() {
+        return anzahl;
+    }
+
+    /**
+     * Die Nummern aller nicht gelöschten Zeilen in aufsteigender Reihenfolge.
+     *
+     * @return die Zeilennummern.
+     */
+    IntStream zeilen() {
+        final var aktuelleAnzahl = anzahl;
+        final var aktuelleSpalten = spalten;
+        return IntStream.range(0, aktuelleAnzahl).filter(aktuelleSpalten::vorhanden);
+    }
+
+    /**
+     * Prüft, ob eine Zeile zu einer aktuellen Version eines Autohauses gehört.
+     *
+     * @param zeile die Zeilennummer.
+     * @return false, falls die Zeile gelöscht ist.
+     */
+    boolean vorhanden(final int zeile) {
+        return spalten.vorhanden(zeile);
+    }
+
+    /**
+     * Die ID des Autohauses, zu dem das Auto einer Zeile gehört.
+     *
+     * @param zeile die Zeilennummer.
+     * @return die ID des Autohauses.
+     */
+    UUID autohausId(final int zeile) {
+        final var s = spalten;
+        return new UUID(s.autohausMsb[zeile], s.autohausLsb[zeile]);
+    }
+
+    /**
+     * Das Baujahr des Autos einer Zeile.
+     *
+     * @param zeile die Zeilennummer.
+     * @return das Baujahr.
+     */
+    int baujahr(final int zeile) {
+        return spalten.baujahr[zeile];
+    }
+
+    /**
+     * Der Preis des Autos einer Zeile in Cent.
+     *
+     * @param zeile die Zeilennummer.
+     * @return der Preis in Cent oder {@link #KEIN_PREIS}.
+     */
+    long preisCent(final int zeile) {
+        return spalten.preisCent[zeile];
+    }
+
+    /**
+     * Der Code des Werts einer kategorischen Spalte in einer Zeile.
+     *
+     * @param kategorie die Spalte.
+     * @param zeile die Zeilennummer.
+     * @return der Code oder {@link #KEIN_CODE}.
+     */
+    int code(final Kategorie kategorie, final int zeile) {
+        return spalten.codes[kategorie.ordinal()][zeile];
+    }
+
+    /**
+     * Der Code eines Werts im Wörterbuch einer kategorischen Spalte.
+     *
+     * @param kategorie die Spalte.
+     * @param wert der Wert.
+     * @return der Code oder {@link #KEIN_CODE}, falls kein Auto diesen Wert hat oder hatte.
+     */
+    int code(final Kategorie kategorie, final String wert) {
+        return woerterbuch(kategorie).code(wert);
+    }
+
+    /**
+     * Sucht über den Hash-Index die Autos mit einem Wert in einer kategorischen Spalte.
+     *
+     * @param kategorie die Spalte.
+     * @param wert der Wert.
+     * @return die nicht gelöschten Zeilen in aufsteigender Reihenfolge.
+     */
+    IntStream zeilen(final Kategorie kategorie, final String wert) {
+        return lebendig(woerterbuch(kategorie).liste(wert));
+    }
+
+    /**
+     * Anzahl der Autos mit einem Wert in einer kategorischen Spalte laut Hash-Index, ohne die Zeilen zu lesen.
+     *
+     * @param kategorie die Spalte.
+     * @param wert der Wert.
+     * @return die Anzahl der nicht gelöschten Zeilen.
+     */
+    int anzahl(final Kategorie kategorie, final String wert) {
+        final var liste = woerterbuch(kategorie).liste(wert);
+        return liste == null ? 0 : liste.lebendig();
+    }
+
+    /**
+     * Sucht über den sortierten Index die Autos, deren Baujahr im angegebenen Bereich liegt.
+     *
+     * @param von das kleinste Baujahr einschließlich.
+     * @param bis das größte Baujahr einschließlich.
+     * @return die nicht gelöschten Zeilen, aufsteigend je Baujahr.
+     */
+    IntStream zeilenMitBaujahr(final int von, final int bis) {
+        return von > bis
+            ? IntStream.empty()
+            : baujahrIndex.subMap(von, true, bis, true).values().stream().flatMapToInt(this::lebendig);
+    }
+
+    /**
+     * Sucht über den sortierten Index die Autos, deren Preis im angegebenen Bereich liegt.
+     *
+     * @param vonCent der kleinste Preis in Cent einschließlich.
+     * @param bisCent der größte Preis in Cent einschließlich.
+     * @return die nicht gelöschten Zeilen, aufsteigend je Preis.
+     */
+    IntStream zeilenMitPreis(final long vonCent, final long bisCent) {
+        return vonCent > bisCent
+            ? IntStream.empty()
+            : preisIndex.subMap(vonCent, true, bisCent, true).values().stream().flatMapToInt(this::lebendig);
+    }
+
+    /**
+     * Anzahl der Autos, deren Baujahr im angegebenen Bereich liegt, laut sortiertem Index. Es werden nur so viele
+     * Schlüssel besucht, bis die Grenze überschritten ist.
+     *
+     * @param von das kleinste Baujahr einschließlich.
+     * @param bis das größte Baujahr einschließlich.
+     * @param grenze ab dieser Anzahl wird nicht weiter gezählt.
+     * @return die Anzahl, höchstens aber ein Wert knapp über der Grenze.
+     */
+    long anzahlMitBaujahr(final int von, final int bis, final long grenze) {
+        return von > bis ? 0L : anzahl(baujahrIndex.subMap(von, true, bis, true), grenze);
+    }
+
+    /**
+     * Anzahl der Autos, deren Preis im angegebenen Bereich liegt, laut sortiertem Index. Es werden nur so viele
+     * Schlüssel besucht, bis die Grenze überschritten ist.
+     *
+     * @param vonCent der kleinste Preis in Cent einschließlich.
+     * @param bisCent der größte Preis in Cent einschließlich.
+     * @param grenze ab dieser Anzahl wird nicht weiter gezählt.
+     * @return die Anzahl, höchstens aber ein Wert knapp über der Grenze.
+     */
+    long anzahlMitPreis(final long vonCent, final long bisCent, final long grenze) {
+        return vonCent > bisCent ? 0L : anzahl(preisIndex.subMap(vonCent, true, bisCent, true), grenze);
+    }
+
+    /**
+     * Zählt die Autos je Wert der Kategorien mit Bitmap als Facetten für eine Suchoberfläche.
+     * <p>
+     * Mehrere Werte derselben Kategorie werden mit ODER, verschiedene Kategorien mit UND verknüpft. Die Anzahlen
+     * einer Kategorie berücksichtigen nur die Filter der anderen Kategorien, so dass auch die Alternativen zu
+     * bereits gewählten Werten gezählt werden. Alle Verknüpfungen und Anzahlen werden auf den Bitmaps berechnet.
+     * </p>
+     *
+     * @param filter die gewählten Werte je Kategorie; nur Kategorien mit Bitmap werden berücksichtigt.
+     * @return je Kategorie mit Bitmap die Anzahl der Autos je Wert, absteigend nach Anzahl.
+     */
+    Map<Kategorie, Map<String, Integer>> facetten(final Map<Kategorie, List<String>> filter) {
+        bitmapSperre.readLock().lock();
+        try {
+            final Map<Kategorie, Bitmap> auswahl = new EnumMap<>(Kategorie.class);
+            filter.forEach((kategorie, werte) -> {
+                if (kategorie.mitBitmap) {
+                    auswahl.put(kategorie, woerterbuch(kategorie).vereinigung(werte));
+                }
+            });
+
+            final Map<Kategorie, Map<String, Integer>> facetten = new EnumMap<>(Kategorie.class);
+            for (final var kategorie : KATEGORIEN) {
+                if (!kategorie.mitBitmap) {
+                    continue;
+                }
+                // UND ueber die Filter aller anderen Kategorien; null bedeutet alle Zeilen
+                Bitmap basis = null;
+                for (final var entry : auswahl.entrySet()) {
+                    if (entry.getKey() != kategorie) {
+                        basis = basis == null ? entry.getValue() : basis.and(entry.getValue());
+                    }
+                }
+                facetten.put(kategorie, woerterbuch(kategorie).anzahlen(basis));
+            }
+            return facetten;
+        } finally {
+            bitmapSperre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Die Kennzahlen aller vorhandenen Autos.
+     *
+     * @return die zuletzt veröffentlichten Kennzahlen.
+     */
+    AutoStatistik statistik() {
+        return gesamtStatistik;
+    }
+
+    /**
+     * Die Kennzahlen der Autos eines Autohauses.
+     *
+     * @param id die ID des Autohauses.
+     * @return Optional mit den Kennzahlen oder leeres Optional, falls das Autohaus nicht eingetragen ist.
+     */
+    Optional<AutoStatistik> statistik(final UUID id) {
+        return Optional.ofNullable(statistikJeAutohaus.get(id));
+    }
+
+    /**
+     * Rechnet einen Preis in Cent um.
+     *
+     * @param preis der Preis oder {@code null}.
+     * @return der auf Cent gerundete Preis oder {@link #KEIN_PREIS}.
+     */
+    static long cent(final BigDecimal preis) {
+        return preis == null
+            ? KEIN_PREIS
+            : preis.movePointRight(CENT_STELLEN).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Rechnet einen Preis in Cent zurück.
+     *
+     * @param cent der Preis in Cent oder {@link #KEIN_PREIS}.
+     * @return der Preis oder {@code null}.
+     */
+    static BigDecimal preis(final long cent) {
+        return cent == KEIN_PREIS ? null : BigDecimal.valueOf(cent, CENT_STELLEN);
+    }
+
+    private Woerterbuch woerterbuch(final Kategorie kategorie) {
+        return woerterbuecher[kategorie.ordinal()];
+    }
+
+    private String wert(final Spalten s, final Kategorie kategorie, final int zeile) {
+        return woerterbuch(kategorie).wert(s.codes[kategorie.ordinal()][zeile]);
+    }
+
+    private static long anzahl(final Map<?, ZeilenListe> bereich, final long grenze) {
+        var anzahl = 0L;
+        for (final var liste : bereich.values()) {
+            anzahl += liste.lebendig();
+            if (anzahl > grenze) {
+                break;
+            }
+        }
+        return anzahl;
+    }
+
+    private IntStream lebendig(final ZeilenListe liste) {
+        return liste == null ? IntStream.empty() : liste.zeilen().filter(this::vorhanden);
+    }
+
+    // geloeschte Zeile aus den Sekundaerindexen austragen; nur unter der Sperre aufrufen
+    private void austragen(final Spalten s, final int zeile) {
+        for (final var kategorie : KATEGORIEN) {
+            woerterbuch(kategorie).entfernt(s.codes[kategorie.ordinal()][zeile], zeile, s::vorhanden);
+        }
+        entfernt(baujahrIndex, s.baujahr[zeile], s);
+        if (s.preisCent[zeile] != KEIN_PREIS) {
+            entfernt(preisIndex, s.preisCent[zeile], s);
+        }
+    }
+
+    // angehaengte Zeilen eines Autohauses zu den gesamten Kennzahlen hinzuzaehlen und seine Kennzahlen liefern;
+    // nur unter der Sperre aufrufen
+    private AutoStatistik zaehlen(final int[] zeilen) {
+        final var s = spalten;
+        final var aggregat = new Aggregat();
+        var minCent = KEIN_PREIS;
+        var maxCent = KEIN_PREIS;
+        for (final var zeile : zeilen) {
+            zaehlen(aggregat, s, zeile, 1);
+            zaehlen(gesamt, s, zeile, 1);
+            final var cent = s.preisCent[zeile];
+            if (cent != KEIN_PREIS) {
+                minCent = minCent == KEIN_PREIS ? cent : Math.min(minCent, cent);
+                maxCent = Math.max(maxCent, cent);
+            }
+        }
+        return aggregat.statistik(minCent, maxCent);
+    }
+
+    private void zaehlen(final Aggregat aggregat, final Spalten s, final int zeile, final int delta) {
+        aggregat.zaehlen(wert(s, Kategorie.MARKE, zeile), s.baujahr[zeile], s.preisCent[zeile], delta);
+    }
+
+    // Minimum und Maximum aller Preise liefert der sortierte Preisindex; nur unter der Sperre aufrufen
+    private AutoStatistik gesamtStatistik() {
+        final var kleinster = preisIndex.firstEntry();
+        final var groesster = preisIndex.lastEntry();
+        return gesamt.statistik(
+            kleinster == null ? KEIN_PREIS : kleinster.getKey(),
+            groesster == null ? KEIN_PREIS : groesster.getKey()
+        );
+    }
+
+    private static <K> void entfernt(final NavigableMap<K, ZeilenListe> index, final K wert, final Spalten s) {
+        final var liste = index.get(wert);
+        liste.entfernt(s::vorhanden);
+        if (liste.lebendig() == 0) {
+            index.remove(wert, liste);
+        }
+    }
+
+    // nicht geloeschte Zeilen lueckenlos neu nummerieren und die Indexe neu aufbauen; die Codes der Woerterbuecher
+    // bleiben erhalten, weil Abfrageplaene sie zwischenspeichern. Nur unter der Sperre aufrufen.
+    private void kompaktieren() {
+        kompaktierSperre.writeLock().lock();
+        bitmapSperre.writeLock().lock();
+        try {
+            final var alt = spalten;
+            final var alteAnzahl = anzahl;
+            final var neueNummer = new int[alteAnzahl];
+            var lebende = 0;
+            for (var zeile = 0; zeile < alteAnzahl; zeile++) {
+                neueNummer[zeile] = alt.vorhanden(zeile) ? lebende++ : -1;
+            }
+            var kapazitaet = INITIALE_KAPAZITAET;
+            while (kapazitaet < lebende) {
+                kapazitaet *= 2;
+            }
+
+            final var s = new Spalten(kapazitaet);
+            for (final var woerterbuch : woerterbuecher) {
+                woerterbuch.leeren();
+            }
+            baujahrIndex.clear();
+            preisIndex.clear();
+            for (var zeile = 0; zeile < alteAnzahl; zeile++) {
+                final var neu = neueNummer[zeile];
+                if (neu < 0) {
+                    continue;
+                }
+                s.autohausMsb[neu] = alt.autohausMsb[zeile];
+                s.autohausLsb[neu] = alt.autohausLsb[zeile];
+                s.baujahr[neu] = alt.baujahr[zeile];
+                s.preisCent[neu] = alt.preisCent[zeile];
+                for (final var kategorie : KATEGORIEN) {
+                    final var code = alt.codes[kategorie.ordinal()][zeile];
+                    s.codes[kategorie.ordinal()][neu] = code;
+                    woerterbuch(kategorie).eintragen(code, neu);
+                }
+                indexieren(s, neu);
+            }
+            zeilenJeAutohaus.replaceAll((_, zeilen) -> {
+                final var neueZeilen = new int[zeilen.length];
+                for (var i = 0; i < zeilen.length; i++) {
+                    neueZeilen[i] = neueNummer[zeilen[i]];
+                }
+                return neueZeilen;
+            });
+            spalten = s;
+            anzahl = lebende;
+            geloeschteZeilen = 0;
+        } finally {
+            bitmapSperre.writeLock().unlock();
+            kompaktierSperre.writeLock().unlock();
+        }
+    }
+
+    // Zeile in die sortierten Indexe eintragen; nur unter der Sperre aufrufen
+    private void indexieren(final Spalten s, final int zeile) {
+        baujahrIndex.computeIfAbsent(s.baujahr[zeile], _ -> new ZeilenListe()).add(zeile);
+        if (s.preisCent[zeile] != KEIN_PREIS) {
+            preisIndex.computeIfAbsent(s.preisCent[zeile], _ -> new ZeilenListe()).add(zeile);
+        }
+    }
+
+    // Zeilen fuer die Autos eines Autohauses anhaengen und veroeffentlichen; nur unter der Sperre aufrufen
+    private int[] anhaengen(final Zellen zellen) {
+        final var erste = anzahl;
+        var s = spalten;
+        if (erste + zellen.anzahl() > s.kapazitaet()) {
+            s = s.vergroessern(erste + zellen.anzahl());
+            spalten = s;
+        }
+        final var id = zellen.id();
+        final var neueZeilen = new int[zellen.anzahl()];
+        for (var i = 0; i < neueZeilen.length; i++) {
+            final var zeile = erste + i;
+            s.autohausMsb[zeile] = id.getMostSignificantBits();
+            s.autohausLsb[zeile] = id.getLeastSignificantBits();
+            s.baujahr[zeile] = zellen.baujahr()[i];
+            s.preisCent[zeile] = zellen.preisCent()[i];
+            neueZeilen[i] = zeile;
+
+            for (final var kategorie : KATEGORIEN) {
+                final var woerterbuch = woerterbuch(kategorie);
+                final var code = woerterbuch.kodieren(zellen.werte()[kategorie.ordinal()][i]);
+                s.codes[kategorie.ordinal()][zeile] = code;
+                woerterbuch.eintragen(code, zeile);
+            }
+            indexieren(s, zeile);
+        }
+        anzahl = erste + neueZeilen.length;
+        return neueZeilen;
+    }
+
+    /**
+     * Die vorab berechneten Zellen der Autos eines Autohauses, siehe {@link #zellen(Autohaus)}.
+     *
+     * @param id die ID des Autohauses.
+     * @param baujahr das Baujahr je Auto.
+     * @param preisCent der Preis in Cent je Auto oder {@link #KEIN_PREIS}.
+     * @param werte die Werte je kategorischer Spalte und Auto; Index ist die Ordinalzahl der Kategorie.
+     */
+    record Zellen(UUID id, int[] baujahr, long[] preisCent, String[][] werte) {
+        int anzahl() {
+            return baujahr.length;
+        }
+    }
+
+    /**
+     * Kategorische Spalten mit Wörterbuch und Hash-Index.
+     */
+    enum Kategorie {
+        /**
+         * Die Marke eines Autos.
+         */
+        MARKE(true, (autohaus, auto) -> auto.getMarke()),
+
+        /**
+         * Das Modell eines Autos.
+         */
+        MODELL(false, (autohaus, auto) -> auto.getModell()),
+
+        /**
+         * Der Besitzer eines Autos.
+         */
+        BESITZER(false, (autohaus, auto) -> auto.getBesitzer()),
+
+        /**
+         * Die Stadt des Autohauses, zu dem ein Auto gehört.
+         */
+        STADT(true, (autohaus, auto) -> autohaus.getAdresse() == null ? null : autohaus.getAdresse().getStadt()),
+
+        /**
+         * Die Postleitzahl des Autohauses, zu dem ein Auto gehört.
+         */
+        PLZ(true, (autohaus, auto) -> autohaus.getAdresse() == null ? null : autohaus.getAdresse().getPlz());
+
+        // Flag, ob es je Wert eine Bitmap gibt; nur fuer Spalten mit wenigen verschiedenen Werten sinnvoll
+        private final boolean mitBitmap;
+        private final BiFunction<Autohaus, Auto, String> attribut;
+
+        Kategorie(final boolean mitBitmap, final BiFunction<Autohaus, Auto, String> attribut) {
+            this.mitBitmap = mitBitmap;
+            this.attribut = attribut;
+        }
+    }
+
+    /**
+     * Veränderliche Kennzahlen, die unter der Sperre des Bestands fortgeschrieben und als {@link AutoStatistik}
+     * veröffentlicht werden. Beim Veröffentlichen werden nur die Anzahlen je Marke und je Baujahr kopiert.
+     */
+    private static final class Aggregat {
+        private final Map<String, Long> anzahlJeMarke = new TreeMap<>();
+        private final Map<Integer, Long> anzahlJeBaujahr = new TreeMap<>();
+        private long anzahl;
+        private long anzahlMitPreis;
+        // Summe der Preise in Cent: schnell als long, der Anteil nach einem Ueberlauf als BigInteger
+        private long summeCent;
+        private BigInteger summeUeberlauf = BigInteger.ZERO;
+
+        // eine Zeile hinzuzaehlen (delta = 1) oder abziehen (delta = -1)
+        void zaehlen(final String marke, final int baujahr, final long cent, final int delta) {
+            anzahl += delta;
+            if (cent != KEIN_PREIS) {
+                anzahlMitPreis += delta;
+                final var betrag = delta * cent;
+                try {
+                    summeCent = Math.addExact(summeCent, betrag);
+                } catch (final ArithmeticException ex) {
+                    summeUeberlauf = summeUeberlauf
+                        .add(BigInteger.valueOf(summeCent))
+                        .add(BigInteger.valueOf(betrag));
+                    summeCent = 0L;
+                }
+            }
+            if (marke != null) {
+                anzahlJeMarke.merge(marke, (long) delta, Aggregat::summe);
+            }
+            anzahlJeBaujahr.merge(baujahr, (long) delta, Aggregat::summe);
+        }
+
+        AutoStatistik statistik(final long minCent, final long maxCent) {
+            final var preissumme = new BigDecimal(summeUeberlauf.add(BigInteger.valueOf(summeCent)), CENT_STELLEN);
+            final var durchschnitt = anzahlMitPreis == 0L
+                ? null
+                : preissumme.divide(BigDecimal.valueOf(anzahlMitPreis), CENT_STELLEN, RoundingMode.HALF_UP);
+            return new AutoStatistik(
+                anzahl,
+                anzahlMitPreis,
+                preissumme,
+                durchschnitt,
+                preis(minCent),
+                preis(maxCent),
+                Collections.unmodifiableMap(new TreeMap<>(anzahlJeMarke)),
+                Collections.unmodifiableMap(new TreeMap<>(anzahlJeBaujahr))
+            );
+        }
+
+        // Anzahl 0 entfernt den Eintrag
+        private static Long summe(final Long alt, final Long delta) {
+            final var neu = alt + delta;
+            return neu == 0L ? null : neu;
+        }
+    }
+
+    /**
+     * Spalten des Bestands, die beim Vergrößern als Ganzes ausgetauscht werden.
+     */
+    private static final class Spalten {
+        private final long[] autohausMsb;
+        private final long[] autohausLsb;
+        private final int[] baujahr;
+        private final long[] preisCent;
+        // Codes je kategorischer Spalte; Index ist die Ordinalzahl der Kategorie
+        private final int[][] codes;
+        // Bitmenge der geloeschten Zeilen
+        private final long[] geloescht;
+
+        Spalten(final int kapazitaet) {
+            this(
+                new long[kapazitaet], new long[kapazitaet], new int[kapazitaet], new long[kapazitaet],
+                new int[KATEGORIEN.length][kapazitaet], new long[kapazitaet >>> WORT_SHIFT]
+            );
+        }
+
+        private Spalten(
+            final long[] autohausMsb,
+            final long[] autohausLsb,
+            final int[] baujahr,
+            final long[] preisCent,
+            final int[][] codes,
+            final long[] geloescht
+        ) {
+            this.autohausMsb = autohausMsb;
+            this.autohausLsb = autohausLsb;
+            this.baujahr = baujahr;
+            this.preisCent = preisCent;
+            this.codes = codes;
+            this.geloescht = geloescht;
+        }
+
+        int kapazitaet() {
+            return baujahr.length;
+        }
+
+        boolean vorhanden(final int zeile) {
+            return ((long) WORT.getAcquire(geloescht, zeile >>> WORT_SHIFT) & 1L << zeile) == 0L;
+        }
+
+        // Kapazitaet verdoppeln, bis die Mindestkapazitaet erreicht ist
+        Spalten vergroessern(final int mindestens) {
+            var kapazitaet = kapazitaet();
+            while (kapazitaet < mindestens) {
+                kapazitaet *= 2;
+            }
+            final var worte = new long[kapazitaet >>> WORT_SHIFT];
+            for (var i = 0; i < geloescht.length; i++) {
+                worte[i] = (long) WORT.getAcquire(geloescht, i);
+            }
+            final var neueCodes = new int[codes.length][];
+            for (var i = 0; i < codes.length; i++) {
+                neueCodes[i] = Arrays.copyOf(codes[i], kapazitaet);
+            }
+            return new Spalten(
+                Arrays.copyOf(autohausMsb, kapazitaet),
+                Arrays.copyOf(autohausLsb, kapazitaet),
+                Arrays.copyOf(baujahr, kapazitaet),
+                Arrays.copyOf(preisCent, kapazitaet),
+                neueCodes,
+                worte
+            );
+        }
+    }
+
+    /**
+     * Wörterbuch, das jedem Wert einer Spalte einen fortlaufenden Code zuordnet, so dass jeder Wert nur einmal
+     * gespeichert wird, und zu jedem Code die Zeilen mit diesem Wert als Hash-Index und optional als Bitmap verwaltet.
+     * Neue Werte und Zeilen werden nur unter der Sperre des Bestands eingetragen, die Bitmaps zusätzlich unter der
+     * Schreibsperre für Bitmaps.
+     */
+    private static final class Woerterbuch {
+        private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] werte = new String[INITIALE_KAPAZITAET];
+        private volatile ZeilenListe[] listen = new ZeilenListe[INITIALE_KAPAZITAET];
+        private volatile Bitmap[] bitmaps;
+
+        Woerterbuch(final boolean mitBitmap) {
+            bitmaps = mitBitmap ? new Bitmap[INITIALE_KAPAZITAET] : null;
+        }
+
+        int code(final String wert) {
+            return wert == null ? KEIN_CODE : codes.getOrDefault(wert, KEIN_CODE);
+        }
+
+        String wert(final int code) {
+            return code == KEIN_CODE ? null : werte[code];
+        }
+
+        ZeilenListe liste(final String wert) {
+            final var code = code(wert);
+            return code == KEIN_CODE ? null : listen[code];
+        }
+
+        void eintragen(final int code, final int zeile) {
+            if (code != KEIN_CODE) {
+                listen[code].add(zeile);
+                if (bitmaps != null) {
+                    bitmaps[code].add(zeile);
+                }
+            }
+        }
+
+        // Zeilen aller Codes verwerfen, um sie nach dem Kompaktieren neu einzutragen
+        void leeren() {
+            final var aktuelleListen = listen;
+            final var aktuelleBitmaps = bitmaps;
+            for (var code = 0; code < codes.size(); code++) {
+                aktuelleListen[code] = new ZeilenListe();
+                if (aktuelleBitmaps != null) {
+                    aktuelleBitmaps[code] = new Bitmap();
+                }
+            }
+        }
+
+        void entfernt(final int code, final int zeile, final IntPredicate vorhanden) {
+            if (code != KEIN_CODE) {
+                listen[code].entfernt(vorhanden);
+                if (bitmaps != null) {
+                    bitmaps[code].remove(zeile);
+                }
+            }
+        }
+
+        // ODER ueber die Bitmaps der Werte; nur unter der Lesesperre fuer Bitmaps
+        Bitmap vereinigung(final List<String> auswahl) {
+            var vereinigung = new Bitmap();
+            for (final var wert : auswahl) {
+                final var code = code(wert);
+                if (code != KEIN_CODE) {
+                    vereinigung = vereinigung.or(bitmaps[code]);
+                }
+            }
+            return vereinigung;
+        }
+
+        // Anzahl je Wert, optional eingeschraenkt auf eine Basis; nur unter der Lesesperre fuer Bitmaps
+        Map<String, Integer> anzahlen(final Bitmap basis) {
+            final var aktuelleBitmaps = bitmaps;
+            final var aktuelleWerte = werte;
+            final Map<String, Integer> anzahlen = new LinkedHashMap<>();
+            IntStream.range(0, codes.size())
+                .mapToObj(code -> {
+                    final var bitmap = aktuelleBitmaps[code];
+                    final var anzahl = basis == null ? bitmap.cardinality() : bitmap.andCardinality(basis);
+                    return Map.entry(aktuelleWerte[code], anzahl);
+                })
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()))
+                .forEachOrdered(entry -> anzahlen.put(entry.getKey(), entry.getValue()));
+            return anzahlen;
+        }
+
+        int kodieren(final String wert) {
+            if (wert == null) {
+                return KEIN_CODE;
+            }
+            final var vorhanden = codes.get(wert);
+            if (vorhanden != null) {
+                return vorhanden;
+            }
+            final var code = codes.size();
+            var aktuelleWerte = werte;
+            var aktuelleListen = listen;
+            var aktuelleBitmaps = bitmaps;
+            if (code == aktuelleWerte.length) {
+                aktuelleWerte = Arrays.copyOf(aktuelleWerte, aktuelleWerte.length * 2);
+                aktuelleListen = Arrays.copyOf(aktuelleListen, aktuelleListen.length * 2);
+                if (aktuelleBitmaps != null) {
+                    aktuelleBitmaps = Arrays.copyOf(aktuelleBitmaps, aktuelleBitmaps.length * 2);
+                }
+            }
+            aktuelleWerte[code] = wert;
+            aktuelleListen[code] = new ZeilenListe();
+            if (aktuelleBitmaps != null) {
+                aktuelleBitmaps[code] = new Bitmap();
+                bitmaps = aktuelleBitmaps;
+            }
+            werte = aktuelleWerte;
+            listen = aktuelleListen;
+            // erst nach dem Wert veroeffentlichen, damit wert(code) ihn sicher sieht
+            codes.put(wert, code);
+            return code;
+        }
+    }
+}
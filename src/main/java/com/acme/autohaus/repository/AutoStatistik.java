@@ -0,0 +1,52 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import org.springframework.lang.Nullable;
+
+/**
+ * Kennzahlen über die Autos eines Autohauses oder aller Autohäuser.
+ * <p>
+ * Die Kennzahlen werden vom {@link AutoInventar} bei jedem Schreibzugriff um die Änderung fortgeschrieben und als
+ * unveränderliches Objekt veröffentlicht. Eine Abfrage liest deshalb unabhängig von der Anzahl der Autos nur eine
+ * Referenz.
+ * </p>
+ *
+ * @param anzahl die Anzahl der Autos.
+ * @param anzahlMitPreis die Anzahl der Autos mit Preis.
+ * @param preisSumme die Summe der Preise.
+ * @param durchschnittspreis der auf Cent gerundete Durchschnitt der Preise oder {@code null}, falls kein Auto
+ * einen Preis hat.
+ * @param minPreis der kleinste Preis oder {@code null}, falls kein Auto einen Preis hat.
+ * @param maxPreis der größte Preis oder {@code null}, falls kein Auto einen Preis hat.
+ * @param anzahlJeMarke die Anzahl der Autos je Marke, sortiert nach Marke.
+ * @param anzahlJeBaujahr die Anzahl der Autos je Baujahr, aufsteigend sortiert.
+ */
+public record AutoStatistik(
+    long anzahl,
+    long anzahlMitPreis,
+    BigDecimal preisSumme,
+    @Nullable BigDecimal durchschnittspreis,
+    @Nullable BigDecimal minPreis,
+    @Nullable BigDecimal maxPreis,
+    Map<String, Long> anzahlJeMarke,
+    Map<Integer, Long> anzahlJeBaujahr
+) {
+}
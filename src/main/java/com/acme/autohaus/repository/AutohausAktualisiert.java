@@ -0,0 +1,30 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import java.util.UUID;
+
+/**
+ * Ereignis, das nach dem Speichern einer neuen Version eines vorhandenen Autohauses veröffentlicht wird, z.B. um
+ * daraus abgeleitete Daten wie serialisierte Responses zu verwerfen.
+ *
+ * @param id die ID des Autohauses.
+ * @param version die neue Version.
+ */
+public record AutohausAktualisiert(UUID id, long version) {
+}
@@ -0,0 +1,235 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import com.acme.autohaus.entity.Adresse;
+import com.acme.autohaus.entity.Auto;
+import com.acme.autohaus.entity.Autohaus;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Kompakte binäre Kodierung eines Autohauses einschließlich Adresse und Autos für Journal und Snapshot.
+ * <p>
+ * Strings werden als UTF-8 mit vorangestellter Länge kodiert ({@code -1} für {@code null}), UUIDs als zwei
+ * {@code long}-Werte und Preise als unskalierter Wert mit Skalierung. Die Version des Autohauses steht am Ende,
+ * so dass Kodierungen ohne Version weiterhin gelesen werden können; ihre Version ist 0.
+ * </p>
+ * <p>
+ * Für Änderungen, die Adresse und Autos unverändert übernehmen, gibt es eine kurze Kodierung nur mit ID, Name,
+ * Telefonnummer, E-Mail-Adresse und Version.
+ * </p>
+ */
+final class AutohausCodec {
+    private static final int NULL = -1;
+    private static final int INITIALE_GROESSE = 256;
+
+    private AutohausCodec() {
+    }
+
+    /**
+     * Kodiert ein Autohaus in ein Byte-Array.
+     *
+     * @param autohaus das Autohaus.
+     * @return die Kodierung.
+     */
+    static byte[] encode(final Autohaus autohaus) {
+        final var bytes = new ByteArrayOutputStream(INITIALE_GROESSE);
+        try (var out = new DataOutputStream(bytes)) {
+            write(autohaus, out);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Dekodiert ein Autohaus aus einem Byte-Array.
+     *
+     * @param bytes die Kodierung.
+     * @return das Autohaus.
+     */
+    static Autohaus decode(final byte[] bytes) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            final var autohaus = read(in);
+            if (in.available() >= Long.BYTES) {
+                autohaus.setVersion(in.readLong());
+            }
+            return autohaus;
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Kodiert nur die Properties eines Autohauses ohne Adresse und Autos, aber mit Version.
+     *
+     * @param autohaus das Autohaus.
+     * @return die Kodierung.
+     */
+    static byte[] encodeProperties(final Autohaus autohaus) {
+        final var bytes = new ByteArrayOutputStream(INITIALE_GROESSE);
+        try (var out = new DataOutputStream(bytes)) {
+            writeUuid(autohaus.getUUId(), out);
+            writeString(autohaus.getName(), out);
+            writeString(autohaus.getTelefonnummer(), out);
+            writeString(autohaus.getEmail(), out);
+            out.writeLong(autohaus.getVersion());
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Dekodiert die Kodierung aus {@link #encodeProperties(Autohaus)}.
+     *
+     * @param bytes die Kodierung.
+     * @return das Autohaus ohne Adresse und mit einer leeren Liste von Autos.
+     */
+    static Autohaus decodeProperties(final byte[] bytes) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            final var id = readUuid(in);
+            final var autohaus = new Autohaus(readString(in), readString(in), id, readString(in), List.of(), null);
+            autohaus.setVersion(in.readLong());
+            return autohaus;
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Schreibt ein Autohaus einschließlich seiner Version, die nur von {@link #decode(byte[])} gelesen wird.
+     *
+     * @param autohaus das Autohaus.
+     * @param out die Ausgabe.
+     * @throws IOException bei einem Fehler der Ausgabe.
+     */
+    static void write(final Autohaus autohaus, final DataOutput out) throws IOException {
+        writeUuid(autohaus.getUUId(), out);
+        writeString(autohaus.getName(), out);
+        writeString(autohaus.getTelefonnummer(), out);
+        writeString(autohaus.getEmail(), out);
+
+        final var adresse = autohaus.getAdresse();
+        out.writeBoolean(adresse != null);
+        if (adresse != null) {
+            writeString(adresse.getStrasse(), out);
+            writeString(adresse.getHausnummer(), out);
+            writeString(adresse.getPlz(), out);
+            writeString(adresse.getStadt(), out);
+        }
+
+        final var autos = autohaus.getAutos();
+        out.writeInt(autos.size());
+        for (final var auto : autos) {
+            writeUuid(auto.getUUId(), out);
+            writeString(auto.getMarke(), out);
+            writeString(auto.getModell(), out);
+            out.writeInt(auto.getBaujahr());
+            writeString(auto.getBesitzer(), out);
+            writeDecimal(auto.getPreis(), out);
+        }
+        out.writeLong(autohaus.getVersion());
+    }
+
+    // Autohaus ohne Version lesen
+    private static Autohaus read(final DataInput in) throws IOException {
+        final var id = readUuid(in);
+        final var name = readString(in);
+        final var telefonnummer = readString(in);
+        final var email = readString(in);
+
+        final var adresse = in.readBoolean()
+            ? new Adresse(readString(in), readString(in), readString(in), readString(in))
+            : null;
+
+        final var anzahlAutos = in.readInt();
+        final var autos = new ArrayList<Auto>(anzahlAutos);
+        for (var i = 0; i < anzahlAutos; i++) {
+            autos.add(new Auto(readUuid(in), readString(in), readString(in), in.readInt(), readString(in),
+                readDecimal(in)));
+        }
+        return new Autohaus(name, telefonnummer, id, email, autos, adresse);
+    }
+
+    private static void writeString(final String s, final DataOutput out) throws IOException {
+        if (s == null) {
+            out.writeInt(NULL);
+            return;
+        }
+        final var bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInput in) throws IOException {
+        final var laenge = in.readInt();
+        if (laenge == NULL) {
+            return null;
+        }
+        final var bytes = new byte[laenge];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeUuid(final UUID id, final DataOutput out) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) {
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(final DataInput in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    private static void writeDecimal(final BigDecimal wert, final DataOutput out) throws IOException {
+        if (wert == null) {
+            out.writeInt(NULL);
+            return;
+        }
+        final var unskaliert = wert.unscaledValue().toByteArray();
+        out.writeInt(unskaliert.length);
+        out.write(unskaliert);
+        out.writeInt(wert.scale());
+    }
+
+    private static BigDecimal readDecimal(final DataInput in) throws IOException {
+        final var laenge = in.readInt();
+        if (laenge == NULL) {
+            return null;
+        }
+        final var unskaliert = new byte[laenge];
+        in.readFully(unskaliert);
+        return new BigDecimal(new BigInteger(unskaliert), in.readInt());
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import com.acme.autohaus.entity.Autohaus;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Journal, in dem jeder Schreibzugriff des Repositorys vor dem Eintragen in den Speicher protokolliert wird
+ * (Write-Ahead-Log).
+ * <p>
+ * Die Datei wird nur angehängt und abschnittsweise über einen {@link MappedByteBuffer} beschrieben. Jeder Eintrag hat
+ * den Aufbau {@code [int Länge][int CRC32C][long Sequenz][byte Operation][Autohaus]}; Länge und Prüfsumme beziehen sich
+ * auf den Teil ab der Sequenz. Bei {@link JournalOperation#PATCH} enthält der Eintrag nur die Properties des Autohauses
+ * ohne Adresse und Autos, siehe {@link AutohausCodec#encodeProperties(Autohaus)}. Beim Einspielen endet das Journal am
+ * ersten Eintrag mit Länge 0, ungültiger Prüfsumme oder nicht fortlaufender Sequenz, d.h. ein beim Absturz nur
+ * teilweise geschriebener Eintrag wird verworfen. Einträge, die bereits in einem Snapshot enthalten sind, werden nur
+ * geprüft und nicht dekodiert.
+ * </p>
+ * <p>
+ * Das Sichern auf den Datenträger (fsync) erfolgt durch einen eigenen Thread als Gruppen-Commit: alle Einträge, die
+ * seit dem letzten fsync angehängt wurden, werden gemeinsam gesichert. Nach dem ersten neuen Eintrag wartet der
+ * Thread das volle Gruppen-Intervall, bevor er sichert; auch volle Abschnitte werden erst von ihm gesichert, so dass
+ * kein fsync unter der Sperre für das Anhängen läuft. Schreibzugriffe warten mit
+ * {@link #abwarten(long)} nur, falls synchrones Schreiben konfiguriert ist.
+ * </p>
+ */
+final class AutohausJournal implements AutoCloseable {
+    /**
+     * Name der Journal-Datei im konfigurierten Verzeichnis.
+     */
+    static final String DATEINAME = "autohaus.journal";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AutohausJournal.class);
+    private static final int KOPF_GROESSE = Integer.BYTES + Integer.BYTES;
+    private static final int SEQUENZ_OPERATION_GROESSE = Long.BYTES + 1;
+
+    private final FileChannel channel;
+    private final long segmentGroesse;
+    private final Duration gruppenIntervall;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition neueEintraege = lock.newCondition();
+    // nur close beendet das Gruppen-Intervall vorzeitig
+    private final Condition gruppenFenster = lock.newCondition();
+    private final Condition gesichert = lock.newCondition();
+    private final Thread syncThread;
+
+    // alle folgenden Felder werden nur unter der Sperre gelesen und geschrieben
+
+    // angehaengte Eintraege, die noch nicht in den Speicher eingetragen sind
+    private final NavigableSet<Long> offen = new TreeSet<>();
+    // volle Abschnitte, die der Sync-Thread noch sichern muss
+    private final List<MappedByteBuffer> volleSegmente = new ArrayList<>();
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long sequenz;
+    private long gesicherteSequenz;
+    private boolean geschlossen;
+
+    private AutohausJournal(
+        final FileChannel channel,
+        final long position,
+        final long sequenz,
+        final PersistenzProperties properties
+    ) throws IOException {
+        this.channel = channel;
+        this.segmentGroesse = properties.segmentGroesse().toBytes();
+        this.gruppenIntervall = properties.gruppenIntervall();
+        this.sequenz = sequenz;
+        this.gesicherteSequenz = sequenz;
+        einblenden(position, segmentGroesse);
+        syncThread = Thread.ofPlatform()
+            .name("autohaus-journal-sync")
+            .daemon()
+            .start(this::gruppenCommits);
+    }
+
+    /**
+     * Öffnet das Journal, spielt alle gültigen Einträge ein und positioniert danach hinter dem letzten Eintrag.
+     *
+     * @param properties die Konfiguration.
+     * @param abSequenz Sequenz, bis zu der die Einträge bereits in einem Snapshot enthalten sind und deshalb nicht
+     *                  eingespielt werden.
+     * @param einspielen Callback für jede protokollierte Operation mit dem zugehörigen Autohaus; bei
+     *                   {@link JournalOperation#PATCH} ohne Adresse und Autos.
+     * @return das geöffnete Journal.
+     * @throws UncheckedIOException falls die Datei nicht geöffnet werden kann.
+     */
+    static AutohausJournal oeffnen(
+        final PersistenzProperties properties,
+        final long abSequenz,
+        final BiConsumer<JournalOperation, Autohaus> einspielen
+    ) {
+        try {
+            Files.createDirectories(properties.verzeichnis());
+            final var datei = properties.verzeichnis().resolve(DATEINAME);
+            final var ende = einspielen(datei, abSequenz, einspielen);
+            final var channel = FileChannel.open(datei, CREATE, READ, WRITE);
+            LOGGER.info("oeffnen: Eintraege bis Sequenz {} aus {} eingespielt", ende.sequenz(), datei);
+            // ohne Journal-Datei, aber mit Snapshot die Sequenz hinter dem Snapshot fortsetzen
+            final var sequenz = Math.max(ende.sequenz(), abSequenz);
+            return new AutohausJournal(channel, ende.position(), sequenz, properties);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Hängt einen Eintrag an das Journal an.
+     *
+     * @param operation die Operation.
+     * @param autohaus das geschriebene Autohaus; bei {@link JournalOperation#PATCH} werden Adresse und Autos nicht
+     *                 protokolliert.
+     * @return die Sequenz des Eintrags, z.B. für {@link #abwarten(long)}.
+     */
+    long append(final JournalOperation operation, final Autohaus autohaus) {
+        final var daten = operation == JournalOperation.PATCH
+            ? AutohausCodec.encodeProperties(autohaus)
+            : AutohausCodec.encode(autohaus);
+        final var laenge = SEQUENZ_OPERATION_GROESSE + daten.length;
+        lock.lock();
+        try {
+            if (geschlossen) {
+                throw new IllegalStateException("Das Journal ist bereits geschlossen");
+            }
+            if (segment.remaining() < KOPF_GROESSE + laenge) {
+                volleSegmente.add(segment);
+                einblenden(segmentStart + segment.position(), Math.max(segmentGroesse, KOPF_GROESSE + laenge));
+            }
+            final var eintragSequenz = sequenz + 1;
+            final var rumpf = ByteBuffer.allocate(laenge)
+                .putLong(eintragSequenz)
+                .put(operation.getCode())
+                .put(daten)
+                .array();
+            final var crc = new CRC32C();
+            crc.update(rumpf);
+
+            segment.putInt(laenge)
+                .putInt((int) crc.getValue())
+                .put(rumpf);
+            // der Sync-Thread wartet nur, solange alles gesichert ist
+            if (sequenz == gesicherteSequenz) {
+                neueEintraege.signal();
+            }
+            sequenz = eintragSequenz;
+            offen.add(eintragSequenz);
+            return eintragSequenz;
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wartet, bis ein Eintrag durch den Gruppen-Commit auf dem Datenträger gesichert ist.
+     *
+     * @param eintragSequenz die Sequenz aus {@link #append(JournalOperation, Autohaus)}.
+     */
+    void abwarten(final long eintragSequenz) {
+        lock.lock();
+        try {
+            while (gesicherteSequenz < eintragSequenz && !geschlossen) {
+                gesichert.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Meldet, dass ein angehängter Eintrag in den Speicher eingetragen ist.
+     *
+     * @param eintragSequenz die Sequenz aus {@link #append(JournalOperation, Autohaus)}.
+     */
+    void angewendet(final long eintragSequenz) {
+        lock.lock();
+        try {
+            offen.remove(eintragSequenz);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Die höchste Sequenz, bis zu der alle Einträge in den Speicher eingetragen sind. Ein danach geöffneter
+     * Snapshot des Speichers enthält also mindestens alle Einträge bis zu dieser Sequenz.
+     *
+     * @return die Sequenz.
+     */
+    long angewendeteSequenz() {
+        lock.lock();
+        try {
+            return offen.isEmpty() ? sequenz : offen.first() - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (geschlossen) {
+                return;
+            }
+            geschlossen = true;
+            volleSegmente.forEach(MappedByteBuffer::force);
+            volleSegmente.clear();
+            segment.force();
+            gesicherteSequenz = sequenz;
+            neueEintraege.signalAll();
+            gruppenFenster.signalAll();
+            gesichert.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            syncThread.join(gruppenIntervall.toMillis() + 1);
+            channel.close();
+        } catch (final IOException ex) {
+            LOGGER.warn("close: {}", ex.getMessage());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("close: Journal geschlossen");
+    }
+
+    // Schleife des Sync-Threads: kurz weitere Eintraege sammeln und dann alle gemeinsam sichern
+    private void gruppenCommits() {
+        while (true) {
+            final List<MappedByteBuffer> zuSichern;
+            final long bisSequenz;
+            lock.lock();
+            try {
+                while (sequenz == gesicherteSequenz && !geschlossen) {
+                    neueEintraege.awaitUninterruptibly();
+                }
+                if (geschlossen) {
+                    return;
+                }
+                // weitere Eintraege bis zum Ende des Intervalls sammeln; neue Eintraege wecken den Thread nicht
+                var verbleibend = gruppenIntervall.toNanos();
+                while (verbleibend > 0L && !geschlossen) {
+                    verbleibend = gruppenFenster.awaitNanos(verbleibend);
+                }
+                if (geschlossen) {
+                    return;
+                }
+                zuSichern = new ArrayList<>(volleSegmente);
+                zuSichern.add(segment);
+                volleSegmente.clear();
+                bisSequenz = sequenz;
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            // fsync ausserhalb der Sperre, damit weiter angehaengt werden kann
+            zuSichern.forEach(MappedByteBuffer::force);
+
+            lock.lock();
+            try {
+                gesicherteSequenz = Math.max(gesicherteSequenz, bisSequenz);
+                gesichert.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void einblenden(final long position, final long groesse) throws IOException {
+        segmentStart = position;
+        segment = channel.map(READ_WRITE, position, groesse);
+    }
+
+    // alle gueltigen Eintraege lesen und die Position hinter dem letzten gueltigen Eintrag ermitteln
+    private static Ende einspielen(
+        final Path datei,
+        final long abSequenz,
+        final BiConsumer<JournalOperation, Autohaus> einspielen
+    ) throws IOException {
+        if (!Files.exists(datei)) {
+            return new Ende(0L, 0L);
+        }
+        var position = 0L;
+        // die Sequenz des ersten Eintrags ist beliebig, danach muss sie fortlaufend sein
+        var sequenz = -1L;
+        final var pruefsumme = new CRC32C();
+        try (var channel = FileChannel.open(datei, READ);
+             var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)))) {
+            while (true) {
+                final int laenge;
+                final int crc;
+                try {
+                    laenge = in.readInt();
+                    if (laenge < SEQUENZ_OPERATION_GROESSE) {
+                        break;
+                    }
+                    crc = in.readInt();
+                    final var rumpf = new byte[laenge];
+                    in.readFully(rumpf);
+                    pruefsumme.reset();
+                    pruefsumme.update(rumpf);
+                    final var eintragSequenz = ByteBuffer.wrap(rumpf).getLong();
+                    if ((int) pruefsumme.getValue() != crc || sequenz != -1L && eintragSequenz != sequenz + 1) {
+                        LOGGER.warn("einspielen: ungueltiger Eintrag an Position {} wird verworfen", position);
+                        break;
+                    }
+                    if (eintragSequenz > abSequenz) {
+                        final var operation = JournalOperation.of(rumpf[Long.BYTES]);
+                        final var daten = Arrays.copyOfRange(rumpf, SEQUENZ_OPERATION_GROESSE, laenge);
+                        final var autohaus = operation == JournalOperation.PATCH
+                            ? AutohausCodec.decodeProperties(daten)
+                            : AutohausCodec.decode(daten);
+                        einspielen.accept(operation, autohaus);
+                    }
+                    sequenz = eintragSequenz;
+                    position += KOPF_GROESSE + laenge;
+                } catch (final EOFException ex) {
+                    break;
+                }
+            }
+        }
+        return new Ende(position, Math.max(sequenz, 0L));
+    }
+
+    private record Ende(long position, long sequenz) {
+    }
+
+    /**
+     * Protokollierte Operationen.
+     */
+    enum JournalOperation {
+        /**
+         * Ein Autohaus wurde neu angelegt.
+         */
+        CREATE((byte) 1),
+
+        /**
+         * Ein Autohaus wurde aktualisiert.
+         */
+        UPDATE((byte) 2),
+
+        /**
+         * Ein Autohaus wurde aktualisiert, ohne Adresse und Autos zu ändern, z.B. durch einen PATCH der
+         * Telefonnummer.
+         */
+        PATCH((byte) 3);
+
+        private final byte code;
+
+        JournalOperation(final byte code) {
+            this.code = code;
+        }
+
+        byte getCode() {
+            return code;
+        }
+
+        static JournalOperation of(final byte code) {
+            for (final var operation : values()) {
+                if (operation.code == code) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unbekannte Operation im Journal: " + code);
+        }
+    }
+}
@@ -18,98 +18,497 @@
 package com.acme.autohaus.repository;
 
 import com.acme.autohaus.entity.Autohaus;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.OptionalInt;
-import java.util.stream.IntStream;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
+import static com.acme.autohaus.repository.AutohausJournal.JournalOperation.CREATE;
+import static com.acme.autohaus.repository.AutohausJournal.JournalOperation.PATCH;
+import static com.acme.autohaus.repository.AutohausJournal.JournalOperation.UPDATE;
 import static com.acme.autohaus.repository.MockDB.AUTOHAEUSER;
 import static java.util.Collections.emptyList;
 import static java.util.UUID.randomUUID;
 
 /**
  * Repository-Klasse für den Zugriff auf und die Verwaltung von Autohaus-Daten.
+ * <p>
+ * Das Repository wird trotz {@code lazy-initialization} beim Start erzeugt, damit Snapshot und Journal geladen sind,
+ * bevor die Anwendung Requests annimmt.
+ * </p>
  */
 @Repository
+@Lazy(false)
 public class AutohausRepository {
+    private static final String BAUJAHR_MIN = "baujahrMin";
+    private static final String BAUJAHR_MAX = "baujahrMax";
+    private static final String PREIS_MIN = "preisMin";
+    private static final String PREIS_MAX = "preisMax";
+    private static final int CURSOR_BYTES = 2 * Long.BYTES;
+
+    // Filter der Facetten-Suche -> kategorische Spalte des Inventars mit Bitmap-Index
+    private static final Map<String, AutoInventar.Kategorie> FACETTEN = Map.of(
+        "marke", AutoInventar.Kategorie.MARKE,
+        "stadt", AutoInventar.Kategorie.STADT,
+        "plz", AutoInventar.Kategorie.PLZ
+    );
+
     private static final Logger LOGGER = LoggerFactory.getLogger(AutohausRepository.class);
 
+    private final AutohausStore store = new AutohausStore();
+
+    // unterscheidet die Epochen verschiedener Starts, weil die Epoche beim Start wieder bei 0 beginnt
+    private final String instanz = Long.toUnsignedString(randomUUID().getMostSignificantBits(), Character.MAX_RADIX);
+
+    // eindeutiger Index: E-Mail-Adresse -> ID des Autohauses, dem die Adresse gehört
+    private final ConcurrentMap<String, UUID> emailIndex = new ConcurrentHashMap<>();
+
+    private final TrigramIndex nameIndex = new TrigramIndex();
+
+    // spaltenorientierter Bestand aller Autos fuer Suchen und Aggregationen ueber Autos
+    private final AutoInventar inventar = new AutoInventar();
+
+    // Suchen ueber viele Autohaeuser oder Autos parallel in einem eigenen Pool
+    private final ParallelerScan scan;
+
+    @Nullable
+    private final AutohausJournal journal;
+
+    private final boolean sync;
+
+    private final PersistenzProperties persistenzProperties;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Snapshots nach Zeitplan und beim Herunterfahren nicht gleichzeitig schreiben
+    private final ReentrantLock snapshotSperre = new ReentrantLock();
+
     /**
-     * Erstellt eine Instanz der AutohausRepository-Klasse.
+     * Erstellt eine Instanz der AutohausRepository-Klasse und baut die Indexe über E-Mail-Adressen und Namen auf.
+     * <p>
+     * Bei aktivierter Persistenz wird zuerst der letzte Snapshot geladen und danach nur der neuere Teil des Journals
+     * eingespielt; nur wenn beides leer ist, werden die initialen Autohäuser aus {@link MockDB} übernommen und
+     * ebenfalls protokolliert.
+     * </p>
+     *
+     * @param persistenzProperties die Konfiguration der eingebetteten Persistenz.
+     * @param eventPublisher für {@link AutohausAktualisiert} nach jeder Aktualisierung.
+     * @param scanProperties die Konfiguration der parallelen Suche.
      */
-    public AutohausRepository() {
+    public AutohausRepository(
+        final PersistenzProperties persistenzProperties,
+        final ApplicationEventPublisher eventPublisher,
+        final ScanProperties scanProperties
+    ) {
+        this.persistenzProperties = persistenzProperties;
+        this.eventPublisher = eventPublisher;
+        scan = new ParallelerScan(scanProperties);
+        sync = persistenzProperties.sync();
+        if (!persistenzProperties.enabled()) {
+            journal = null;
+            AUTOHAEUSER.forEach(this::einfuegen);
+            return;
+        }
+
+        final var snapshot = AutohausSnapshotDatei.laden(persistenzProperties.verzeichnis());
+        snapshot.ifPresent(geladen -> geladen.autohaeuser().forEach(this::einfuegen));
+        final var snapshotSequenz = snapshot.map(AutohausSnapshotDatei.Geladen::sequenz).orElse(0L);
+        journal = AutohausJournal.oeffnen(persistenzProperties, snapshotSequenz, this::einspielen);
+        if (store.size() == 0) {
+            AUTOHAEUSER.forEach(autohaus -> {
+                final var sequenz = journal.append(CREATE, autohaus);
+                einfuegen(autohaus);
+                journal.angewendet(sequenz);
+            });
+        }
+    }
+
+    /**
+     * Schreibt einen Snapshot aller Autohäuser, damit beim nächsten Start nur noch der neuere Teil des Journals
+     * eingespielt werden muss.
+     * <p>
+     * Die Sequenz wird vor dem Öffnen des Snapshots ermittelt: alle Schreibzugriffe bis zu dieser Sequenz sind dann
+     * sicher enthalten; neuere, bereits enthaltene Schreibzugriffe werden beim Einspielen idempotent wiederholt.
+     * </p>
+     */
+    @Scheduled(
+        initialDelayString = "${app.persistenz.snapshot-intervall:10m}",
+        fixedDelayString = "${app.persistenz.snapshot-intervall:10m}"
+    )
+    void snapshotSchreiben() {
+        if (journal == null) {
+            return;
+        }
+        snapshotSperre.lock();
+        try {
+            final var sequenz = journal.angewendeteSequenz();
+            try (var snapshot = store.snapshot()) {
+                AutohausSnapshotDatei.schreiben(persistenzProperties.verzeichnis(), sequenz, snapshot.list());
+            }
+        } finally {
+            snapshotSperre.unlock();
+        }
+    }
+
+    /**
+     * Beendet beim Herunterfahren den Pool für parallele Suchen, schreibt einen Snapshot und schließt danach das
+     * Journal, so dass alle protokollierten Schreibzugriffe gesichert sind.
+     */
+    @PreDestroy
+    void close() {
+        scan.close();
+        if (journal != null) {
+            snapshotSchreiben();
+            journal.close();
+        }
     }
 
     /**
      * Gibt eine Liste aller Autohaus-Objekte zurück.
+     * Die Liste ist ein konsistenter Snapshot und wird durch parallele Schreibzugriffe nicht verändert.
      *
      * @return eine Liste aller Autohaeuser.
      */
     public @NonNull List<Autohaus> getAll() {
-        return AUTOHAEUSER;
+        return store.list();
     }
 
     /**
      * Gibt eine Liste von Autohaus-Objekten basierend auf den Suchkriterien zurück.
+     * <p>
+     * Alle Suchkriterien werden ausgewertet und mit UND verknüpft, mehrere Werte desselben Suchkriteriums mit ODER.
+     * Neben "name" werden Kriterien über die Autos unterstützt: "marke", "modell", "besitzer", "baujahr",
+     * "baujahrMin", "baujahrMax", "preisMin" und "preisMax"; ein Autohaus wird gefunden, wenn eines seiner Autos alle
+     * diese Kriterien erfüllt. Der Abfrageplan beginnt mit dem selektivsten Index, siehe {@link AutohausSuche}.
+     * Unbekannte Suchkriterien und ungültige Zahlen führen zu einer leeren Liste.
+     * </p>
      *
-     * @param suchkriterien MultiValueMap mit Suchparametern wie "name" und "standort".
+     * @param suchkriterien MultiValueMap mit Suchparametern wie "name" und "marke".
      * @return gefilterte Liste von Autohaus-Objekten oder alle, wenn keine Kriterien vorhanden sind.
      */
-    @SuppressWarnings("ReturnCount")
     public @NonNull List<Autohaus> get(@NonNull final Map<String, List<String>> suchkriterien) {
         if (suchkriterien.isEmpty()) {
             return getAll();
         }
-
-        for (final var entry : suchkriterien.entrySet()) {
-            switch (entry.getKey()) {
-                case "name" -> {
-                    return getByName(entry.getValue().getFirst());
-                }
-                default -> {
-                    LOGGER.debug("find: ungueltiges Suchkriterium={}", entry.getKey());
-                    return emptyList();
-                }
-            }
-        }
-        return emptyList();
+        final var autohaeuser = AutohausSuche.planen(suchkriterien, inventar, nameIndex)
+            .map(suche -> suche.ausfuehren(store, scan))
+            .orElse(emptyList());
+        LOGGER.debug("get: autohaeuser={}", autohaeuser);
+        return autohaeuser;
     }
 
     /**
      * Sucht Autohaeuser anhand des Namens.
+     * <p>
+     * Ab einer Länge von 3 Zeichen wird die Kandidatenmenge über den Trigramm-Index bestimmt, so dass nur noch die
+     * Kandidaten mit {@link String#contains(CharSequence)} geprüft werden. Kürzere Namen werden gegen alle
+     * Autohäuser geprüft, bei vielen Autohäusern parallel über den {@link ParallelerScan}.
+     * </p>
      *
      * @param name der Name des gesuchten Autohauses.
      * @return Liste von Autohaeusern, deren Name den angegebenen String enthält.
      */
     public @NonNull List<Autohaus> getByName(final String name) {
         LOGGER.debug("getByName: name={}", name);
-        final var autohaeuser = AUTOHAEUSER.stream()
-            .filter(autohaus -> autohaus.getName().contains(name))
-            .toList();
+        final var kandidaten = nameIndex.kandidaten(name);
+        final var autohaeuser = scan.filtern(
+            kandidaten.isEmpty() ? store.list() : store.get(kandidaten.get()),
+            autohaus -> autohaus.getName().contains(name),
+            1
+        );
         LOGGER.debug("getByName: autohaeuser={}", autohaeuser);
         return autohaeuser;
     }
 
+    /**
+     * Sucht Autohäuser mit mindestens einem Auto der angegebenen Marke über den Hash-Index der Marken.
+     *
+     * @param marke die Marke.
+     * @return Liste der Autohäuser in der Reihenfolge, in der sie angelegt wurden.
+     */
+    public @NonNull List<Autohaus> getByMarke(final String marke) {
+        LOGGER.debug("getByMarke: marke={}", marke);
+        return get(Map.of("marke", List.of(marke)));
+    }
+
+    /**
+     * Sucht Autohäuser mit mindestens einem Auto des angegebenen Modells über den Hash-Index der Modelle.
+     *
+     * @param modell das Modell.
+     * @return Liste der Autohäuser in der Reihenfolge, in der sie angelegt wurden.
+     */
+    public @NonNull List<Autohaus> getByModell(final String modell) {
+        LOGGER.debug("getByModell: modell={}", modell);
+        return get(Map.of("modell", List.of(modell)));
+    }
+
+    /**
+     * Sucht Autohäuser mit mindestens einem Auto des angegebenen Besitzers über den Hash-Index der Besitzer.
+     *
+     * @param besitzer der Name des Besitzers.
+     * @return Liste der Autohäuser in der Reihenfolge, in der sie angelegt wurden.
+     */
+    public @NonNull List<Autohaus> getByBesitzer(final String besitzer) {
+        LOGGER.debug("getByBesitzer: besitzer={}", besitzer);
+        return get(Map.of("besitzer", List.of(besitzer)));
+    }
+
+    /**
+     * Sucht Autohäuser mit mindestens einem Auto, dessen Baujahr im angegebenen Bereich liegt, über den sortierten
+     * Index der Baujahre.
+     *
+     * @param von das kleinste Baujahr einschließlich.
+     * @param bis das größte Baujahr einschließlich.
+     * @return Liste der Autohäuser in der Reihenfolge, in der sie angelegt wurden.
+     */
+    public @NonNull List<Autohaus> getByBaujahr(final int von, final int bis) {
+        LOGGER.debug("getByBaujahr: von={}, bis={}", von, bis);
+        return get(Map.of(BAUJAHR_MIN, List.of(String.valueOf(von)), BAUJAHR_MAX, List.of(String.valueOf(bis))));
+    }
+
+    /**
+     * Sucht Autohäuser mit mindestens einem Auto, dessen Preis im angegebenen Bereich liegt, über den sortierten
+     * Index der Preise. Die Grenzen werden auf Cent gerundet.
+     *
+     * @param von der kleinste Preis einschließlich oder {@code null} für keine Untergrenze.
+     * @param bis der größte Preis einschließlich oder {@code null} für keine Obergrenze.
+     * @return Liste der Autohäuser in der Reihenfolge, in der sie angelegt wurden.
+     */
+    public @NonNull List<Autohaus> getByPreis(@Nullable final BigDecimal von, @Nullable final BigDecimal bis) {
+        LOGGER.debug("getByPreis: von={}, bis={}", von, bis);
+        final Map<String, List<String>> suchkriterien = new HashMap<>();
+        if (von != null) {
+            suchkriterien.put(PREIS_MIN, List.of(von.toPlainString()));
+        }
+        if (bis != null) {
+            suchkriterien.put(PREIS_MAX, List.of(bis.toPlainString()));
+        }
+        return suchkriterien.isEmpty() ? getAll() : get(suchkriterien);
+    }
+
+    /**
+     * Durchläuft die Autohäuser, die den Suchkriterien entsprechen, als Cursor, z.B. um sie direkt in eine Response
+     * zu schreiben.
+     * <p>
+     * Ohne Suchkriterien liest der Stream die Autohäuser erst beim Durchlaufen aus einem Snapshot, so dass der
+     * Speicherbedarf unabhängig von der Anzahl ist. Der Stream muss geschlossen werden, damit der Snapshot ältere
+     * Versionen wieder freigibt.
+     * </p>
+     *
+     * @param suchkriterien MultiValueMap mit Suchparametern wie bei {@link #get(Map)}.
+     * @return Stream der Autohäuser in der Reihenfolge, in der sie angelegt wurden.
+     */
+    public @NonNull Stream<Autohaus> stream(@NonNull final Map<String, List<String>> suchkriterien) {
+        LOGGER.debug("stream: suchkriterien={}", suchkriterien);
+        if (!suchkriterien.isEmpty()) {
+            return get(suchkriterien).stream();
+        }
+        final var snapshot = store.snapshot();
+        return snapshot.stream().onClose(snapshot::close);
+    }
+
+    /**
+     * Liefert eine Seite der Autohäuser, die den Suchkriterien entsprechen, mit Keyset-Paginierung.
+     * <p>
+     * Schlüssel ist die unveränderliche Position eines Autohauses in der Reihenfolge, in der die Autohäuser angelegt
+     * wurden; der Cursor kodiert die ID des letzten Autohauses der vorherigen Seite. Ohne Suchkriterien werden nur
+     * die Zeilen der Seite gelesen, so dass eine Seite unabhängig von der Größe des Bestands O(limit) kostet. Mit
+     * Suchkriterien werden die Autohäuser erst ab dem Cursor gelesen und geprüft, bis die Seite voll ist, siehe
+     * {@link AutohausSuche}.
+     * </p>
+     *
+     * @param suchkriterien MultiValueMap mit Suchparametern wie bei {@link #get(Map)}.
+     * @param cursor der Cursor der vorherigen Seite oder {@code null} für die erste Seite.
+     * @param limit die maximale Anzahl der Autohäuser auf der Seite.
+     * @return Optional mit der Seite oder leeres Optional, falls der Cursor ungültig ist.
+     */
+    public @NonNull Optional<AutohausSeite> getSeite(
+        @NonNull final Map<String, List<String>> suchkriterien,
+        @Nullable final String cursor,
+        final int limit
+    ) {
+        LOGGER.debug("getSeite: suchkriterien={}, cursor={}, limit={}", suchkriterien, cursor, limit);
+        final int ab;
+        if (cursor == null) {
+            ab = 0;
+        } else {
+            final var position = cursorDekodieren(cursor)
+                .map(store::position)
+                .orElse(UuidIndex.NICHT_VORHANDEN);
+            if (position == UuidIndex.NICHT_VORHANDEN) {
+                return Optional.empty();
+            }
+            ab = position + 1;
+        }
+
+        // ein Autohaus mehr lesen, um zu erkennen, ob es eine naechste Seite gibt
+        final List<Autohaus> autohaeuser;
+        if (suchkriterien.isEmpty()) {
+            try (var snapshot = store.snapshot()) {
+                autohaeuser = snapshot.seite(ab, limit + 1);
+            }
+        } else {
+            autohaeuser = AutohausSuche.planen(suchkriterien, inventar, nameIndex)
+                .map(suche -> suche.seite(store, scan, ab, limit + 1))
+                .orElse(emptyList());
+        }
+
+        if (autohaeuser.size() <= limit) {
+            return Optional.of(new AutohausSeite(autohaeuser, Optional.empty()));
+        }
+        final var seite = autohaeuser.subList(0, limit);
+        final var naechsterCursor = cursorKodieren(seite.getLast().getUUId());
+        return Optional.of(new AutohausSeite(seite, Optional.of(naechsterCursor)));
+    }
+
+    /**
+     * Zählt die Autos je Marke, Stadt und Postleitzahl für eine Suchoberfläche mit Facetten.
+     * <p>
+     * Als Filter werden "marke", "stadt" und "plz" unterstützt; mehrere Werte desselben Filters werden mit ODER,
+     * verschiedene Filter mit UND verknüpft. Die Anzahlen einer Facette berücksichtigen jeweils nur die Filter der
+     * anderen Facetten. Die Anzahlen werden über die Bitmap-Indexe des {@link AutoInventar} berechnet.
+     * </p>
+     *
+     * @param filter MultiValueMap mit den gewählten Werten je Facette.
+     * @return Optional mit der Anzahl der Autos je Wert und Facette oder leeres Optional bei unbekannten Filtern.
+     */
+    public @NonNull Optional<Map<String, Map<String, Integer>>> facetten(
+        @NonNull final Map<String, List<String>> filter
+    ) {
+        LOGGER.debug("facetten: filter={}", filter);
+        final Map<AutoInventar.Kategorie, List<String>> auswahl = new EnumMap<>(AutoInventar.Kategorie.class);
+        for (final var entry : filter.entrySet()) {
+            final var kategorie = FACETTEN.get(entry.getKey());
+            if (kategorie == null) {
+                return Optional.empty();
+            }
+            auswahl.put(kategorie, entry.getValue());
+        }
+
+        final Map<String, Map<String, Integer>> facetten = new LinkedHashMap<>();
+        inventar.facetten(auswahl).forEach((kategorie, anzahlen) ->
+            facetten.put(kategorie.name().toLowerCase(Locale.ROOT), anzahlen)
+        );
+        return Optional.of(facetten);
+    }
+
+    /**
+     * Kennzahlen über alle Autos: Anzahl, Preise sowie Anzahl je Marke und je Baujahr.
+     * <p>
+     * Die Kennzahlen werden beim Anlegen und Ändern vom {@link AutoInventar} fortgeschrieben und hier nur gelesen.
+     * </p>
+     *
+     * @return die Kennzahlen.
+     */
+    public @NonNull AutoStatistik statistik() {
+        return inventar.statistik();
+    }
+
+    /**
+     * Kennzahlen über die Autos eines Autohauses.
+     *
+     * @param id die ID des Autohauses als String.
+     * @return Optional mit den Kennzahlen oder leeres Optional, falls kein Autohaus mit der ID existiert.
+     */
+    public @NonNull Optional<AutoStatistik> statistik(@NonNull final String id) {
+        final UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (final IllegalArgumentException ex) {
+            LOGGER.debug("statistik: ungueltige id={}", id);
+            return Optional.empty();
+        }
+        return inventar.statistik(uuid);
+    }
+
+    // UUID als 16 Bytes in Base64 fuer URLs: der Cursor ist fuer Clients undurchsichtig
+    private static String cursorKodieren(final UUID id) {
+        final var bytes = ByteBuffer.allocate(CURSOR_BYTES)
+            .putLong(id.getMostSignificantBits())
+            .putLong(id.getLeastSignificantBits())
+            .array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static Optional<UUID> cursorDekodieren(final String cursor) {
+        final byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (final IllegalArgumentException ex) {
+            LOGGER.debug("cursorDekodieren: ungueltiger cursor={}", cursor);
+            return Optional.empty();
+        }
+        if (bytes.length != CURSOR_BYTES) {
+            return Optional.empty();
+        }
+        final var buffer = ByteBuffer.wrap(bytes);
+        return Optional.of(new UUID(buffer.getLong(), buffer.getLong()));
+    }
+
     /**
      * Sucht ein Autohaus-Objekt anhand seiner ID.
      *
-     * @param id die UUID des gesuchten Autohauses.
+     * @param id die UUID des gesuchten Autohauses als String.
      * @return Optional mit dem gefundenen Autohaus, falls vorhanden.
      */
     public @NonNull Optional<Autohaus> getByID(@NonNull final String id) {
+        final UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (final IllegalArgumentException ex) {
+            LOGGER.debug("getByID: ungueltige id={}", id);
+            return Optional.empty();
+        }
+        return getByID(uuid);
+    }
+
+    /**
+     * Sucht ein Autohaus-Objekt anhand seiner ID.
+     *
+     * @param id die UUID des gesuchten Autohauses.
+     * @return Optional mit dem gefundenen Autohaus, falls vorhanden.
+     */
+    public @NonNull Optional<Autohaus> getByID(@NonNull final UUID id) {
         LOGGER.debug("Suche nach Autohaus mit id: {}", id);
-        final Optional<Autohaus> autohaus = AUTOHAEUSER.stream()
-            .filter(a -> Objects.equals(id, a.getUUId().toString()))
-            .findFirst();
+        final Optional<Autohaus> autohaus = store.get(id);
         LOGGER.debug("Ergebnis der Suche nach id {}: {}", id, autohaus);
         return autohaus;
     }
 
+    /**
+     * Version des gesamten Bestands, die sich bei jedem Schreibzugriff ändert, z.B. als ETag für Collections.
+     * <p>
+     * Die Version besteht aus einer Kennung dieses Starts und der Epoche des Speichers. Sie ist nur auf Gleichheit
+     * vergleichbar: Ist sie unverändert, liefert jede Suche dasselbe Ergebnis wie zuvor.
+     * </p>
+     *
+     * @return die Version.
+     */
+    public @NonNull String getVersion() {
+        return instanz + '-' + store.epoche();
+    }
+
     /**
      * Überprüft, ob die angegebene E-Mail-Adresse bereits existiert.
      *
@@ -118,43 +517,303 @@ public class AutohausRepository {
      */
     public boolean isEmailExisting(final String email) {
         LOGGER.debug("isEmailExisting: email={}", email);
-        final var count = AUTOHAEUSER.stream()
-            .filter(autohaus -> autohaus.getEmail().contentEquals(email))
-            .count();
-        LOGGER.debug("isEmailExisting: count={}", count);
-        return count > 0L;
+        final var existing = email != null && emailIndex.containsKey(email);
+        LOGGER.debug("isEmailExisting: existing={}", existing);
+        return existing;
     }
 
     /**
      * Erstellt ein neues Autohaus-Objekt und fügt es der Datenbank hinzu.
+     * <p>
+     * Die E-Mail-Adresse wird dabei in einem atomaren Schritt geprüft und reserviert, so dass zwei gleichzeitige
+     * Requests mit derselben E-Mail-Adresse nicht beide erfolgreich sein können. Alles, was fehlschlagen kann, wird
+     * vorher berechnet; schlägt das Protokollieren im Journal fehl, wird die E-Mail-Adresse wieder freigegeben.
+     * </p>
      *
      * @param autohaus das zu erstellende Autohaus-Objekt.
-     * @return das erstellte Autohaus-Objekt mit UUID.
+     * @return Optional mit dem erstellten Autohaus-Objekt mit UUID oder leeres Optional, falls die E-Mail-Adresse
+     * bereits existiert.
      */
-    public @NonNull Autohaus create(final @NonNull Autohaus autohaus) {
+    public @NonNull Optional<Autohaus> create(final @NonNull Autohaus autohaus) {
         LOGGER.debug("create: {}", autohaus);
-        autohaus.setUUId(randomUUID());
-        AUTOHAEUSER.add(autohaus);
+        final var id = randomUUID();
+        autohaus.setUUId(id);
+        // alles, was fehlschlagen kann, vor dem Reservieren und Protokollieren
+        final var zellen = AutoInventar.zellen(autohaus);
+        if (!reserviereEmail(autohaus.getEmail(), id)) {
+            LOGGER.debug("create: email {} existiert", autohaus.getEmail());
+            return Optional.empty();
+        }
+        final var sequenz = protokollieren(CREATE, autohaus, true);
+        nameIndex.add(autohaus.getName(), id);
+        inventar.einfuegen(zellen);
+        store.insert(autohaus);
+        angewendet(sequenz);
+        sichern(sequenz);
         LOGGER.debug("create: {}", autohaus);
-        return autohaus;
+        return Optional.of(autohaus);
+    }
+
+    /**
+     * Erstellt mehrere neue Autohäuser in einem gemeinsamen Commit.
+     * <p>
+     * Die E-Mail-Adressen werden in der Reihenfolge der Liste atomar reserviert, so dass bei gleichen Adressen
+     * innerhalb der Liste nur das erste Autohaus angelegt wird. Alle übrigen Autohäuser werden im Journal
+     * protokolliert, mit einer gemeinsamen Epoche in den Speicher eingetragen und bei synchronem Schreiben mit
+     * einem einzigen Warten auf den Gruppen-Commit gesichert. Schlägt das Protokollieren fehl, werden die bereits
+     * protokollierten Autohäuser trotzdem eingetragen und die E-Mail-Adressen der übrigen wieder freigegeben.
+     * </p>
+     *
+     * @param autohaeuser die zu erstellenden Autohaus-Objekte.
+     * @return je Autohaus in derselben Reihenfolge ein Optional mit dem erstellten Autohaus oder ein leeres
+     * Optional, falls die E-Mail-Adresse bereits existiert.
+     */
+    public @NonNull List<Optional<Autohaus>> createBatch(final @NonNull List<Autohaus> autohaeuser) {
+        LOGGER.debug("createBatch: anzahl={}", autohaeuser.size());
+        // alles, was fehlschlagen kann, vor dem Reservieren und Protokollieren
+        final List<AutoInventar.Zellen> vorbereitet = new ArrayList<>(autohaeuser.size());
+        for (final var autohaus : autohaeuser) {
+            autohaus.setUUId(randomUUID());
+            vorbereitet.add(AutoInventar.zellen(autohaus));
+        }
+
+        final List<Optional<Autohaus>> ergebnisse = new ArrayList<>(autohaeuser.size());
+        final List<Autohaus> neue = new ArrayList<>(autohaeuser.size());
+        final List<AutoInventar.Zellen> zellen = new ArrayList<>(autohaeuser.size());
+        for (var i = 0; i < autohaeuser.size(); i++) {
+            final var autohaus = autohaeuser.get(i);
+            if (reserviereEmail(autohaus.getEmail(), autohaus.getUUId())) {
+                neue.add(autohaus);
+                zellen.add(vorbereitet.get(i));
+                ergebnisse.add(Optional.of(autohaus));
+            } else {
+                ergebnisse.add(Optional.empty());
+            }
+        }
+        if (neue.isEmpty()) {
+            return ergebnisse;
+        }
+
+        final var sequenzen = new long[neue.size()];
+        var protokolliert = 0;
+        try {
+            while (protokolliert < sequenzen.length) {
+                sequenzen[protokolliert] = protokollieren(CREATE, neue.get(protokolliert));
+                protokolliert++;
+            }
+        } catch (final RuntimeException ex) {
+            // Journal und Speicher muessen uebereinstimmen: Protokolliertes eintragen, den Rest verwerfen
+            neue.subList(protokolliert, neue.size())
+                .forEach(autohaus -> freigeben(autohaus.getEmail(), autohaus.getUUId()));
+            eintragen(neue.subList(0, protokolliert), zellen.subList(0, protokolliert), sequenzen);
+            throw ex;
+        }
+        eintragen(neue, zellen, sequenzen);
+        sichern(sequenzen[sequenzen.length - 1]);
+        LOGGER.debug("createBatch: {} von {} angelegt", neue.size(), autohaeuser.size());
+        return ergebnisse;
     }
 
     /**
      * Aktualisiert ein vorhandenes Autohaus-Objekt in der Datenbank.
+     * <p>
+     * Bei einer geänderten E-Mail-Adresse wird die neue Adresse atomar reserviert und die alte Adresse freigegeben.
+     * Die Version des Autohauses wird gegenüber der gespeicherten Version um 1 erhöht.
+     * </p>
+     * <p>
+     * Mit einer erwarteten Version wird optimistisch aktualisiert: Vergleich der Version und Speichern erfolgen
+     * als ein atomarer Schritt (Compare-and-Set), so dass eine zwischenzeitliche Änderung nicht überschrieben wird.
+     * Die Sperre des Autohauses wird dabei nur für diesen Schritt gehalten und nie über einen Request hinweg.
+     * Nach dem Speichern wird {@link AutohausAktualisiert} veröffentlicht.
+     * </p>
      *
      * @param autohaus das zu aktualisierende Autohaus-Objekt.
+     * @param erwarteteVersion die Version, die der Client gelesen hat, oder {@code null} für keinen Vergleich.
+     * @return das Ergebnis; bei {@link Aktualisierung#AKTUALISIERT} enthält das Autohaus die neue Version.
      */
-    public void update(final @NonNull Autohaus autohaus) {
-        LOGGER.debug("update: {}", autohaus);
-        final OptionalInt index = IntStream
-            .range(0, AUTOHAEUSER.size())
-            .filter(i -> Objects.equals(AUTOHAEUSER.get(i).getUUId(), autohaus.getUUId()))
-            .findFirst();
-        LOGGER.trace("update: index={}", index);
-        if (index.isEmpty()) {
-            return;
+    public @NonNull Aktualisierung update(
+        final @NonNull Autohaus autohaus,
+        @Nullable final Long erwarteteVersion
+    ) {
+        LOGGER.debug("update: {}, erwarteteVersion={}", autohaus, erwarteteVersion);
+        final var id = autohaus.getUUId();
+        // konkurrierende Aenderungen desselben Autohauses serialisieren, andere Autohaeuser bleiben unberuehrt
+        final var sperre = store.sperre(id);
+        final long sequenz;
+        sperre.lock();
+        try {
+            final var autohausDbOpt = store.get(id);
+            if (autohausDbOpt.isEmpty()) {
+                return Aktualisierung.NICHT_VORHANDEN;
+            }
+            final var autohausDb = autohausDbOpt.get();
+            if (erwarteteVersion != null && erwarteteVersion != autohausDb.getVersion()) {
+                LOGGER.debug("update: version {} statt {}", autohausDb.getVersion(), erwarteteVersion);
+                return Aktualisierung.VERSION_VERALTET;
+            }
+            // alles, was fehlschlagen kann, vor dem Reservieren und Protokollieren
+            final var zellen = zellen(autohausDb, autohaus);
+            final var neueEmail = !Objects.equals(autohausDb.getEmail(), autohaus.getEmail());
+            if (neueEmail && !reserviereEmail(autohaus.getEmail(), id)) {
+                LOGGER.debug("update: email {} existiert", autohaus.getEmail());
+                return Aktualisierung.EMAIL_VORHANDEN;
+            }
+            autohaus.setVersion(autohausDb.getVersion() + 1);
+            // ohne neue Zellen sind Adresse und Autos unveraendert und werden nicht noch einmal protokolliert
+            sequenz = protokollieren(zellen == null ? PATCH : UPDATE, autohaus, neueEmail);
+            ersetzen(autohausDb, autohaus, zellen);
+            angewendet(sequenz);
+        } finally {
+            sperre.unlock();
         }
-        AUTOHAEUSER.set(index.getAsInt(), autohaus);
+        sichern(sequenz);
+        eventPublisher.publishEvent(new AutohausAktualisiert(id, autohaus.getVersion()));
         LOGGER.info("update: {}", autohaus);
+        return Aktualisierung.AKTUALISIERT;
+    }
+
+    // Autohaus in die Indexe und den Speicher eintragen; die E-Mail-Adresse ist bereits reserviert oder eindeutig
+    private void einfuegen(final Autohaus autohaus) {
+        einfuegen(autohaus, AutoInventar.zellen(autohaus));
+    }
+
+    private void einfuegen(final Autohaus autohaus, final AutoInventar.Zellen zellen) {
+        if (autohaus.getEmail() != null) {
+            emailIndex.put(autohaus.getEmail(), autohaus.getUUId());
+        }
+        nameIndex.add(autohaus.getName(), autohaus.getUUId());
+        inventar.einfuegen(zellen);
+        store.insert(autohaus);
+    }
+
+    // protokollierte neue Autohaeuser mit einer gemeinsamen Epoche eintragen; die E-Mail-Adressen sind reserviert
+    // und die Sequenzen stehen in derselben Reihenfolge am Anfang des Arrays
+    private void eintragen(
+        final List<Autohaus> autohaeuser,
+        final List<AutoInventar.Zellen> zellen,
+        final long[] sequenzen
+    ) {
+        if (autohaeuser.isEmpty()) {
+            return;
+        }
+        autohaeuser.forEach(autohaus -> nameIndex.add(autohaus.getName(), autohaus.getUUId()));
+        inventar.einfuegen(zellen);
+        store.insert(autohaeuser);
+        for (var i = 0; i < autohaeuser.size(); i++) {
+            angewendet(sequenzen[i]);
+        }
+    }
+
+    // Zellen fuer das Inventar oder null, falls die neue Version Autos und Adresse mit der alten teilt,
+    // z.B. nach einem PATCH; dann bleibt das Inventar unberuehrt
+    @Nullable
+    private static AutoInventar.Zellen zellen(final Autohaus alt, final Autohaus neu) {
+        return alt.getAutos() == neu.getAutos() && alt.getAdresse() == neu.getAdresse()
+            ? null
+            : AutoInventar.zellen(neu);
+    }
+
+    // neue Version eintragen und die Indexe nachziehen; die neue E-Mail-Adresse ist bereits reserviert
+    private void ersetzen(final Autohaus alt, final Autohaus neu, @Nullable final AutoInventar.Zellen zellen) {
+        final var id = neu.getUUId();
+        if (!Objects.equals(alt.getEmail(), neu.getEmail())) {
+            freigeben(alt.getEmail(), id);
+        }
+        if (!Objects.equals(alt.getName(), neu.getName())) {
+            nameIndex.remove(alt.getName(), id);
+            nameIndex.add(neu.getName(), id);
+        }
+        if (zellen != null) {
+            inventar.ersetzen(zellen);
+        }
+        store.replace(neu);
+    }
+
+    // protokollierte Operation beim Start einspielen; der Snapshot kann sie bereits enthalten.
+    // Ein Eintrag, der sich nicht eintragen laesst, wird uebersprungen, damit der Start nicht scheitert.
+    private void einspielen(final AutohausJournal.JournalOperation operation, final Autohaus eintrag) {
+        final var alt = store.get(eintrag.getUUId());
+        if (alt.isEmpty() && operation != CREATE) {
+            return;
+        }
+        final var autohaus = operation == PATCH ? mitAdresseUndAutos(eintrag, alt.get()) : eintrag;
+        final AutoInventar.Zellen zellen;
+        try {
+            zellen = alt.isEmpty() ? AutoInventar.zellen(autohaus) : zellen(alt.get(), autohaus);
+        } catch (final IllegalArgumentException ex) {
+            LOGGER.warn("einspielen: {} von {} uebersprungen: {}", operation, autohaus.getUUId(), ex.getMessage());
+            return;
+        }
+        if (alt.isEmpty()) {
+            einfuegen(autohaus, Objects.requireNonNull(zellen));
+            return;
+        }
+        reserviereEmail(autohaus.getEmail(), autohaus.getUUId());
+        ersetzen(alt.get(), autohaus, zellen);
+    }
+
+    // Properties aus einem PATCH-Eintrag mit Adresse und Autos der gespeicherten Version
+    private static Autohaus mitAdresseUndAutos(final Autohaus eintrag, final Autohaus alt) {
+        final var autohaus = new Autohaus(
+            eintrag.getName(),
+            eintrag.getTelefonnummer(),
+            eintrag.getUUId(),
+            eintrag.getEmail(),
+            alt.getAutos(),
+            alt.getAdresse()
+        );
+        autohaus.setVersion(eintrag.getVersion());
+        return autohaus;
+    }
+
+    // Schreibzugriff vor dem Eintragen in den Speicher im Journal protokollieren
+    private long protokollieren(final AutohausJournal.JournalOperation operation, final Autohaus autohaus) {
+        return journal == null ? 0L : journal.append(operation, autohaus);
+    }
+
+    // wie oben, gibt aber bei einem Fehler die fuer diesen Schreibzugriff reservierte E-Mail-Adresse wieder frei
+    private long protokollieren(
+        final AutohausJournal.JournalOperation operation,
+        final Autohaus autohaus,
+        final boolean emailReserviert
+    ) {
+        try {
+            return protokollieren(operation, autohaus);
+        } catch (final RuntimeException ex) {
+            if (emailReserviert) {
+                freigeben(autohaus.getEmail(), autohaus.getUUId());
+            }
+            throw ex;
+        }
+    }
+
+    // Schreibzugriff als im Speicher eingetragen melden, damit der naechste Snapshot ihn abdeckt
+    private void angewendet(final long sequenz) {
+        if (journal != null) {
+            journal.angewendet(sequenz);
+        }
+    }
+
+    // bei synchronem Schreiben warten, bis der Gruppen-Commit den Eintrag gesichert hat
+    private void sichern(final long sequenz) {
+        if (journal != null && sync) {
+            journal.abwarten(sequenz);
+        }
+    }
+
+    // prueft und reserviert eine E-Mail-Adresse in einem atomaren Schritt
+    private boolean reserviereEmail(final String email, final UUID id) {
+        if (email == null) {
+            return true;
+        }
+        final var vorhandeneId = emailIndex.putIfAbsent(email, id);
+        return vorhandeneId == null || vorhandeneId.equals(id);
+    }
+
+    // gibt eine reservierte E-Mail-Adresse frei, falls sie noch zu dieser ID gehoert
+    private void freigeben(final String email, final UUID id) {
+        if (email != null) {
+            emailIndex.remove(email, id);
+        }
     }
 }
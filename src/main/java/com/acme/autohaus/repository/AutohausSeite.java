@@ -0,0 +1,35 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import com.acme.autohaus.entity.Autohaus;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Eine Seite von Autohäusern beim Blättern mit Cursor.
+ * <p>
+ * Der Cursor ist ein undurchsichtiger String, der das letzte Autohaus der Seite bezeichnet. Die nächste Seite beginnt
+ * unmittelbar danach, so dass parallel angelegte Autohäuser weder doppelt noch übersprungen werden.
+ * </p>
+ *
+ * @param autohaeuser die Autohäuser der Seite in der Reihenfolge, in der sie angelegt wurden.
+ * @param naechsterCursor Cursor für die nächste Seite oder leer, falls dies die letzte Seite ist.
+ */
+public record AutohausSeite(List<Autohaus> autohaeuser, Optional<String> naechsterCursor) {
+}
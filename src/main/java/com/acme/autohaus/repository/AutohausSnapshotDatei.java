@@ -0,0 +1,194 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import com.acme.autohaus.entity.Autohaus;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Binäre Snapshot-Datei mit allen Autohäusern für einen schnellen Neustart.
+ * <p>
+ * Aufbau: {@code [int Magic][int Format][long Journal-Sequenz][int Anzahl]}, danach die mit {@link AutohausCodec}
+ * kodierten Autohäuser, danach eine Tabelle mit dem Offset jedes Autohauses und am Ende
+ * {@code [long Offset der Tabelle][int CRC32C]}. Die Prüfsumme bezieht sich auf alles vor der Tabelle. Über die
+ * Offset-Tabelle kann die eingeblendete Datei in Abschnitten parallel dekodiert werden.
+ * </p>
+ * <p>
+ * Die Datei wird zuerst unter einem temporären Namen geschrieben, gesichert und dann atomar umbenannt, so dass beim
+ * Start immer entweder der alte oder der neue Snapshot vollständig vorliegt. Da die Datei als Ganzes eingeblendet
+ * wird, ist ihre Größe auf 2 GB begrenzt.
+ * </p>
+ */
+final class AutohausSnapshotDatei {
+    /**
+     * Name der Snapshot-Datei im konfigurierten Verzeichnis.
+     */
+    static final String DATEINAME = "autohaus.snapshot";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AutohausSnapshotDatei.class);
+    private static final int MAGIC = 0x41484153;
+    private static final int FORMAT = 1;
+    private static final int KOPF_GROESSE = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int FUSS_GROESSE = Long.BYTES + Integer.BYTES;
+    private static final int PUFFER_GROESSE = 1 << 16;
+    private static final int MIN_ABSCHNITT = 1024;
+
+    private AutohausSnapshotDatei() {
+    }
+
+    /**
+     * Schreibt einen Snapshot.
+     *
+     * @param verzeichnis das Verzeichnis für die Snapshot-Datei.
+     * @param sequenz die Journal-Sequenz, bis zu der alle Schreibzugriffe im Snapshot enthalten sind.
+     * @param autohaeuser alle Autohäuser.
+     * @throws UncheckedIOException falls die Datei nicht geschrieben werden kann.
+     */
+    static void schreiben(final Path verzeichnis, final long sequenz, final List<Autohaus> autohaeuser) {
+        final var datei = verzeichnis.resolve(DATEINAME);
+        final var tmp = verzeichnis.resolve(DATEINAME + ".tmp");
+        try (var channel = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            final var crc = new CRC32C();
+            final var out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(channel), crc), PUFFER_GROESSE)
+            );
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(sequenz);
+            out.writeInt(autohaeuser.size());
+            final var offsets = new int[autohaeuser.size()];
+            for (var i = 0; i < offsets.length; i++) {
+                offsets[i] = out.size();
+                AutohausCodec.write(autohaeuser.get(i), out);
+            }
+            final var tabelle = out.size();
+            out.flush();
+            // die Pruefsumme umfasst alles vor der Offset-Tabelle
+            final var pruefsumme = (int) crc.getValue();
+            for (final var offset : offsets) {
+                out.writeLong(offset);
+            }
+            out.writeLong(tabelle);
+            out.writeInt(pruefsumme);
+            out.flush();
+            channel.force(true);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        try {
+            Files.move(tmp, datei, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        LOGGER.info("schreiben: {} Autohaeuser bis Sequenz {} in {}", autohaeuser.size(), sequenz, datei);
+    }
+
+    /**
+     * Lädt den Snapshot, indem die Datei eingeblendet und abschnittsweise parallel dekodiert wird.
+     *
+     * @param verzeichnis das Verzeichnis der Snapshot-Datei.
+     * @return leeres Optional, falls kein gültiger Snapshot existiert, sonst der geladene Snapshot.
+     */
+    static Optional<Geladen> laden(final Path verzeichnis) {
+        final var datei = verzeichnis.resolve(DATEINAME);
+        if (!Files.isRegularFile(datei)) {
+            return Optional.empty();
+        }
+        try (var channel = FileChannel.open(datei, READ)) {
+            final var groesse = channel.size();
+            if (groesse < KOPF_GROESSE + FUSS_GROESSE) {
+                LOGGER.warn("laden: {} ist unvollstaendig", datei);
+                return Optional.empty();
+            }
+            final MappedByteBuffer buffer = channel.map(READ_ONLY, 0, groesse);
+            final var tabelle = buffer.getLong((int) (groesse - FUSS_GROESSE));
+            final var crc = buffer.getInt((int) (groesse - Integer.BYTES));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT
+                || tabelle < KOPF_GROESSE || tabelle > groesse - FUSS_GROESSE
+                || !pruefsummeKorrekt(buffer, (int) tabelle, crc)) {
+                LOGGER.warn("laden: {} ist ungueltig und wird ignoriert", datei);
+                return Optional.empty();
+            }
+            final var sequenz = buffer.getLong(Integer.BYTES + Integer.BYTES);
+            final var anzahl = buffer.getInt(Integer.BYTES + Integer.BYTES + Long.BYTES);
+            final var offsets = new int[anzahl + 1];
+            for (var i = 0; i < anzahl; i++) {
+                offsets[i] = (int) buffer.getLong((int) tabelle + i * Long.BYTES);
+            }
+            offsets[anzahl] = (int) tabelle;
+
+            final var autohaeuser = new Autohaus[anzahl];
+            final var abschnitte = Math.max(1, Math.min(
+                Runtime.getRuntime().availableProcessors(),
+                anzahl / MIN_ABSCHNITT
+            ));
+            IntStream.range(0, abschnitte).parallel().forEach(abschnitt -> {
+                final var von = (int) ((long) anzahl * abschnitt / abschnitte);
+                final var bis = (int) ((long) anzahl * (abschnitt + 1) / abschnitte);
+                for (var i = von; i < bis; i++) {
+                    final var bytes = new byte[offsets[i + 1] - offsets[i]];
+                    buffer.get(offsets[i], bytes);
+                    autohaeuser[i] = AutohausCodec.decode(bytes);
+                }
+            });
+            LOGGER.info("laden: {} Autohaeuser bis Sequenz {} aus {}", anzahl, sequenz, datei);
+            return Optional.of(new Geladen(sequenz, Arrays.asList(autohaeuser)));
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static boolean pruefsummeKorrekt(final ByteBuffer buffer, final int ende, final int crc) {
+        final var pruefsumme = new CRC32C();
+        pruefsumme.update(buffer.slice(0, ende));
+        return (int) pruefsumme.getValue() == crc;
+    }
+
+    /**
+     * Inhalt eines geladenen Snapshots.
+     *
+     * @param sequenz die Journal-Sequenz, bis zu der alle Schreibzugriffe enthalten sind.
+     * @param autohaeuser die Autohäuser in der gespeicherten Reihenfolge.
+     */
+    record Geladen(long sequenz, List<Autohaus> autohaeuser) {
+    }
+}
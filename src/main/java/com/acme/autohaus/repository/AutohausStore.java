@@ -0,0 +1,487 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import com.acme.autohaus.entity.Autohaus;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Thread-sicherer Speicher für Autohäuser mit mehreren Versionen (MVCC) und Primärschlüssel-Index.
+ * <p>
+ * Jeder Schreibzugriff legt eine neue, unveränderliche Version des Autohauses mit der nächsten Epoche an und
+ * veröffentlicht danach die Epoche. Ein {@link Snapshot} merkt sich die Epoche beim Öffnen und sieht von jedem
+ * Autohaus genau die neueste Version, die bis zu dieser Epoche veröffentlicht wurde - ohne Sperren und
+ * unabhängig von parallelen Schreibzugriffen. Ältere Versionen werden freigegeben, sobald kein geöffneter
+ * Snapshot sie mehr benötigt.
+ * </p>
+ * <p>
+ * Schreibende Zugriffe auf dasselbe Autohaus werden über {@link #sperre(UUID)} nach UUID gestreift serialisiert;
+ * die Commit-Sperre wird nur für das eigentliche Eintragen gehalten. Es wird bewusst kein {@code synchronized}
+ * verwendet, damit Virtual Threads beim Warten nicht ihren Carrier Thread blockieren.
+ * </p>
+ * <p>
+ * Die gespeicherten {@link Autohaus}-Objekte dürfen nach dem Eintragen nicht mehr verändert werden; Änderungen
+ * erfolgen ausschließlich durch Eintragen eines neuen Objekts mit derselben ID.
+ * </p>
+ */
+final class AutohausStore {
+    private static final int ANZAHL_STREIFEN = 64;
+    private static final int INITIALE_KAPAZITAET = 16;
+
+    // Zeilen mit Release-/Acquire-Semantik, damit eine neue Version vollstaendig initialisiert gelesen wird
+    private static final VarHandle ZEILE = MethodHandles.arrayElementVarHandle(Version[].class);
+
+    private final Lock commitLock = new ReentrantLock();
+    private final Lock[] streifen = new Lock[ANZAHL_STREIFEN];
+    private final UuidIndex index = new UuidIndex();
+
+    // Epoche -> Anzahl der geoeffneten Snapshots mit dieser Epoche
+    private final ConcurrentMap<Long, AtomicInteger> gepinnteEpochen = new ConcurrentHashMap<>();
+
+    // Positionen von Zeilen, die noch aeltere Versionen referenzieren
+    private final Set<Integer> zeilenMitVorgaengern = ConcurrentHashMap.newKeySet();
+
+    // Zeilen und Anzahl werden nur unter der Commit-Sperre veraendert und durch die Epoche veroeffentlicht;
+    // lesend immer zuerst die Anzahl und danach die Zeilen lesen, damit die Zeilen mindestens so neu sind
+    private volatile Version[] zeilen = new Version[INITIALE_KAPAZITAET];
+    private volatile int anzahl;
+    private volatile long epoche;
+
+    /**
+     * Erstellt einen leeren Speicher.
+     */
+    AutohausStore() {
+        Arrays.setAll(streifen, _ -> new ReentrantLock());
+    }
+
+    /**
+     * Öffnet einen konsistenten Snapshot mit der aktuellen Epoche.
+     * Der Snapshot muss geschlossen werden, damit ältere Versionen freigegeben werden können.
+     *
+     * @return der geöffnete Snapshot.
+     */
+    Snapshot snapshot() {
+        while (true) {
+            final var e = epoche;
+            gepinnteEpochen.computeIfAbsent(e, _ -> new AtomicInteger()).incrementAndGet();
+            if (e == epoche) {
+                return new Snapshot(e);
+            }
+            // waehrenddessen wurde eine neue Epoche veroeffentlicht: erneut mit der neuen Epoche versuchen
+            freigeben(e);
+        }
+    }
+
+    /**
+     * Sucht die aktuelle Version eines Autohauses anhand seiner ID.
+     *
+     * @param id die ID des Autohauses.
+     * @return Optional mit dem Autohaus, falls vorhanden.
+     */
+    Optional<Autohaus> get(final UUID id) {
+        while (true) {
+            final var e = epoche;
+            final var version = lesen(id, e);
+            if (version != null || e == epoche) {
+                return Optional.ofNullable(version);
+            }
+            // aeltere Versionen wurden evtl. gerade freigegeben: mit der neuen Epoche erneut lesen
+        }
+    }
+
+    /**
+     * Liefert die aktuellen Versionen aller Autohäuser.
+     *
+     * @return unveränderliche Liste aller Autohäuser.
+     */
+    List<Autohaus> list() {
+        try (var snapshot = snapshot()) {
+            return snapshot.list();
+        }
+    }
+
+    /**
+     * Liefert die aktuellen Versionen der Autohäuser zu den angegebenen IDs in der Reihenfolge, in der sie angelegt
+     * wurden.
+     *
+     * @param ids die IDs; nicht vorhandene IDs werden ignoriert.
+     * @return die gefundenen Autohäuser.
+     */
+    List<Autohaus> get(final Collection<UUID> ids) {
+        try (var snapshot = snapshot()) {
+            return snapshot.get(ids);
+        }
+    }
+
+    /**
+     * Anzahl der gespeicherten Autohäuser.
+     *
+     * @return die Anzahl.
+     */
+    int size() {
+        return anzahl;
+    }
+
+    /**
+     * Position eines Autohauses in der Reihenfolge, in der die Autohäuser angelegt wurden. Die Position ändert sich
+     * nicht, solange das Autohaus gespeichert ist, und eignet sich deshalb als Schlüssel für das Blättern.
+     *
+     * @param id die ID des Autohauses.
+     * @return die Position oder {@link UuidIndex#NICHT_VORHANDEN}.
+     */
+    int position(final UUID id) {
+        final var position = index.get(id);
+        return position < anzahl ? position : UuidIndex.NICHT_VORHANDEN;
+    }
+
+    /**
+     * Die zuletzt veröffentlichte Epoche, die bei jedem Schreibzugriff erhöht wird.
+     *
+     * @return die Epoche.
+     */
+    long epoche() {
+        return epoche;
+    }
+
+    /**
+     * Liefert die Sperre für schreibende Zugriffe auf ein Autohaus.
+     *
+     * @param id die ID des Autohauses.
+     * @return die Sperre des zugehörigen Streifens.
+     */
+    Lock sperre(final UUID id) {
+        return streifen[Math.floorMod(id.hashCode(), ANZAHL_STREIFEN)];
+    }
+
+    /**
+     * Fügt ein neues Autohaus hinzu.
+     *
+     * @param autohaus das Autohaus mit gesetzter ID.
+     */
+    void insert(final Autohaus autohaus) {
+        insert(List.of(autohaus));
+    }
+
+    /**
+     * Fügt mehrere neue Autohäuser mit einer gemeinsamen Epoche hinzu, so dass ein Snapshot entweder alle oder
+     * keines der Autohäuser sieht.
+     *
+     * @param autohaeuser die Autohäuser mit gesetzter ID.
+     */
+    void insert(final List<Autohaus> autohaeuser) {
+        commitLock.lock();
+        try {
+            final var neueEpoche = epoche + 1;
+            var aktuelleZeilen = zeilen;
+            final var erste = anzahl;
+            final var benoetigt = erste + autohaeuser.size();
+            if (benoetigt > aktuelleZeilen.length) {
+                var kapazitaet = aktuelleZeilen.length;
+                while (kapazitaet < benoetigt) {
+                    kapazitaet *= 2;
+                }
+                aktuelleZeilen = Arrays.copyOf(aktuelleZeilen, kapazitaet);
+                zeilen = aktuelleZeilen;
+            }
+            for (var i = 0; i < autohaeuser.size(); i++) {
+                final var autohaus = autohaeuser.get(i);
+                ZEILE.setRelease(aktuelleZeilen, erste + i, new Version(autohaus, neueEpoche, null));
+                index.put(autohaus.getUUId(), erste + i);
+            }
+            anzahl = benoetigt;
+            epoche = neueEpoche;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Ersetzt ein vorhandenes Autohaus mit derselben ID durch eine neue Version.
+     *
+     * @param autohaus das neue Autohaus.
+     * @return true, falls ein Autohaus mit der ID vorhanden war.
+     */
+    boolean replace(final Autohaus autohaus) {
+        commitLock.lock();
+        try {
+            final var position = index.get(autohaus.getUUId());
+            if (position == UuidIndex.NICHT_VORHANDEN) {
+                return false;
+            }
+            final var neueEpoche = epoche + 1;
+            final var aktuelleZeilen = zeilen;
+            ZEILE.setRelease(aktuelleZeilen, position, new Version(autohaus, neueEpoche, zeile(aktuelleZeilen, position)));
+            epoche = neueEpoche;
+            // erst nach dem Veroeffentlichen aufraeumen, siehe get(UUID)
+            zeilenMitVorgaengern.add(position);
+            aufraeumen();
+            return true;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private Autohaus lesen(final UUID id, final long sichtbareEpoche) {
+        final var position = index.get(id);
+        if (position == UuidIndex.NICHT_VORHANDEN || position >= anzahl) {
+            return null;
+        }
+        final var version = zeile(zeilen, position).sichtbar(sichtbareEpoche);
+        return version == null ? null : version.autohaus;
+    }
+
+    private static Version zeile(final Version[] zeilen, final int position) {
+        return (Version) ZEILE.getAcquire(zeilen, position);
+    }
+
+    private void freigeben(final long gepinnteEpoche) {
+        gepinnteEpochen.computeIfPresent(
+            gepinnteEpoche,
+            (_, zaehler) -> zaehler.decrementAndGet() == 0 ? null : zaehler
+        );
+    }
+
+    // alle Versionen freigeben, die von keinem geoeffneten Snapshot mehr benoetigt werden
+    private void aufraeumen() {
+        final var minimum = gepinnteEpochen.keySet().stream()
+            .mapToLong(Long::longValue)
+            .min()
+            .orElse(epoche);
+        final var aktuelleZeilen = zeilen;
+        zeilenMitVorgaengern.removeIf(position -> zeile(aktuelleZeilen, position).kuerzen(minimum));
+    }
+
+    /**
+     * Unveränderliche Version eines Autohauses, die mit der Epoche ihres Schreibzugriffs und ihrem Vorgänger
+     * verkettet ist.
+     */
+    private static final class Version {
+        private final Autohaus autohaus;
+        private final long epoche;
+        private volatile Version vorgaenger;
+
+        Version(final Autohaus autohaus, final long epoche, final Version vorgaenger) {
+            this.autohaus = autohaus;
+            this.epoche = epoche;
+            this.vorgaenger = vorgaenger;
+        }
+
+        // neueste Version, die in der angegebenen Epoche sichtbar ist
+        Version sichtbar(final long sichtbareEpoche) {
+            var version = this;
+            while (version != null && version.epoche > sichtbareEpoche) {
+                version = version.vorgaenger;
+            }
+            return version;
+        }
+
+        // Vorgaenger abschneiden, die aelter als die aelteste benoetigte Version sind; true, falls keine mehr uebrig
+        boolean kuerzen(final long minimum) {
+            final var benoetigt = sichtbar(minimum);
+            if (benoetigt != null) {
+                benoetigt.vorgaenger = null;
+            }
+            return vorgaenger == null;
+        }
+    }
+
+    /**
+     * Konsistente Sicht auf alle Autohäuser zu einer festen Epoche.
+     */
+    final class Snapshot implements AutoCloseable {
+        private final long sichtbareEpoche;
+        private boolean geschlossen;
+
+        private Snapshot(final long sichtbareEpoche) {
+            this.sichtbareEpoche = sichtbareEpoche;
+        }
+
+        /**
+         * Die Epoche, deren Stand der Snapshot zeigt.
+         *
+         * @return die Epoche.
+         */
+        long epoche() {
+            return sichtbareEpoche;
+        }
+
+        /**
+         * Sucht ein Autohaus im Snapshot.
+         *
+         * @param id die ID des Autohauses.
+         * @return Optional mit dem Autohaus, falls es in dieser Epoche existiert.
+         */
+        Optional<Autohaus> get(final UUID id) {
+            return Optional.ofNullable(lesen(id, sichtbareEpoche));
+        }
+
+        /**
+         * Liefert die Autohäuser zu den angegebenen IDs in der Reihenfolge, in der sie angelegt wurden.
+         *
+         * @param ids die IDs; nicht vorhandene IDs werden ignoriert.
+         * @return die gefundenen Autohäuser.
+         */
+        List<Autohaus> get(final Collection<UUID> ids) {
+            final var aktuelleAnzahl = anzahl;
+            final var aktuelleZeilen = zeilen;
+            return ids.stream()
+                .mapToInt(index::get)
+                .filter(position -> position != UuidIndex.NICHT_VORHANDEN && position < aktuelleAnzahl)
+                .sorted()
+                .mapToObj(position -> zeile(aktuelleZeilen, position).sichtbar(sichtbareEpoche))
+                .filter(Objects::nonNull)
+                .map(version -> version.autohaus)
+                .toList();
+        }
+
+        /**
+         * Liefert eine Seite der Autohäuser, die in dieser Epoche existieren, in der Reihenfolge, in der sie angelegt
+         * wurden. Es werden nur die Zeilen der Seite besucht.
+         *
+         * @param ab die erste Position der Seite.
+         * @param limit die maximale Anzahl der Autohäuser.
+         * @return unveränderliche Liste der Autohäuser.
+         */
+        List<Autohaus> seite(final int ab, final int limit) {
+            return seite(ab, limit, _ -> true);
+        }
+
+        /**
+         * Liefert eine Seite der Autohäuser, die in dieser Epoche existieren und den Filter erfüllen, in der
+         * Reihenfolge, in der sie angelegt wurden. Es werden nur die Zeilen ab der ersten Position besucht, bis die
+         * Seite voll ist.
+         *
+         * @param ab die erste Position der Seite.
+         * @param limit die maximale Anzahl der Autohäuser.
+         * @param filter die Bedingung für die Autohäuser der Seite.
+         * @return unveränderliche Liste der Autohäuser.
+         */
+        List<Autohaus> seite(final int ab, final int limit, final Predicate<Autohaus> filter) {
+            final var aktuelleAnzahl = anzahl;
+            final var aktuelleZeilen = zeilen;
+            final List<Autohaus> autohaeuser = new ArrayList<>(Math.min(limit, Math.max(aktuelleAnzahl - ab, 0)));
+            for (var i = ab; i < aktuelleAnzahl && autohaeuser.size() < limit; i++) {
+                final var version = zeile(aktuelleZeilen, i).sichtbar(sichtbareEpoche);
+                if (version != null && filter.test(version.autohaus)) {
+                    autohaeuser.add(version.autohaus);
+                }
+            }
+            return List.copyOf(autohaeuser);
+        }
+
+        /**
+         * Wie {@link #seite(int, int, Predicate)}, aber es werden nur die Zeilen der angegebenen IDs besucht.
+         *
+         * @param ids die IDs der Kandidaten; nicht vorhandene IDs werden ignoriert.
+         * @param ab die erste Position der Seite.
+         * @param limit die maximale Anzahl der Autohäuser.
+         * @param filter die Bedingung für die Autohäuser der Seite.
+         * @return unveränderliche Liste der Autohäuser.
+         */
+        List<Autohaus> seite(
+            final Collection<UUID> ids,
+            final int ab,
+            final int limit,
+            final Predicate<Autohaus> filter
+        ) {
+            final var aktuelleAnzahl = anzahl;
+            final var aktuelleZeilen = zeilen;
+            final var positionen = ids.stream()
+                .mapToInt(index::get)
+                .filter(position -> position >= ab && position < aktuelleAnzahl)
+                .sorted()
+                .toArray();
+            final List<Autohaus> autohaeuser = new ArrayList<>(Math.min(limit, positionen.length));
+            for (var i = 0; i < positionen.length && autohaeuser.size() < limit; i++) {
+                final var version = zeile(aktuelleZeilen, positionen[i]).sichtbar(sichtbareEpoche);
+                if (version != null && filter.test(version.autohaus)) {
+                    autohaeuser.add(version.autohaus);
+                }
+            }
+            return List.copyOf(autohaeuser);
+        }
+
+        /**
+         * Durchläuft alle Autohäuser, die in dieser Epoche existieren, in der Reihenfolge, in der sie angelegt
+         * wurden, ohne sie vorher in einer Liste zu sammeln. Der Stream darf nur benutzt werden, solange der
+         * Snapshot geöffnet ist.
+         *
+         * @return Stream der Autohäuser.
+         */
+        Stream<Autohaus> stream() {
+            final var aktuelleAnzahl = anzahl;
+            final var aktuelleZeilen = zeilen;
+            return IntStream.range(0, aktuelleAnzahl)
+                .mapToObj(position -> zeile(aktuelleZeilen, position).sichtbar(sichtbareEpoche))
+                .filter(Objects::nonNull)
+                .map(version -> version.autohaus);
+        }
+
+        /**
+         * Liefert alle Autohäuser, die in dieser Epoche existieren.
+         *
+         * @return unveränderliche Liste der Autohäuser.
+         */
+        List<Autohaus> list() {
+            final var aktuelleAnzahl = anzahl;
+            final var aktuelleZeilen = zeilen;
+            final List<Autohaus> autohaeuser = new ArrayList<>(aktuelleAnzahl);
+            for (var i = 0; i < aktuelleAnzahl; i++) {
+                final var version = zeile(aktuelleZeilen, i).sichtbar(sichtbareEpoche);
+                if (version != null) {
+                    autohaeuser.add(version.autohaus);
+                }
+            }
+            return List.copyOf(autohaeuser);
+        }
+
+        @Override
+        public void close() {
+            if (geschlossen) {
+                return;
+            }
+            geschlossen = true;
+            freigeben(sichtbareEpoche);
+            // nicht blockieren: wenn gerade geschrieben wird, raeumt der Schreibzugriff selbst auf
+            if (!zeilenMitVorgaengern.isEmpty() && commitLock.tryLock()) {
+                try {
+                    aufraeumen();
+                } finally {
+                    commitLock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import com.acme.autohaus.entity.Auto;
+import com.acme.autohaus.entity.Autohaus;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.IntToLongFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static com.acme.autohaus.repository.AutoInventar.KEIN_PREIS;
+
+/**
+ * Abfrageplan für die Suche nach Autohäusern mit mehreren Suchkriterien.
+ * <p>
+ * Verschiedene Suchkriterien werden mit UND verknüpft, mehrere Werte desselben Suchkriteriums
+ * (z.B. {@code ?marke=BMW&marke=Audi}) mit ODER. Die Kriterien über Autos beziehen sich auf dasselbe Auto: ein
+ * Autohaus wird gefunden, wenn eines seiner Autos alle diese Kriterien erfüllt.
+ * </p>
+ * <p>
+ * Für jedes Kriterium wird die Anzahl der Treffer aus den Indexen des {@link AutoInventar} geschätzt, ohne Zeilen zu
+ * lesen. Das selektivste Kriterium liefert die Kandidaten aus seinem Index, die übrigen Kriterien werden je
+ * Kandidat über die Spalten geprüft. Der Aufwand ist dadurch proportional zur Treffermenge des selektivsten
+ * Kriteriums und nicht zur Größe des Bestands. Zum Schluss werden die aktuellen Versionen der Autohäuser noch einmal
+ * vollständig geprüft.
+ * </p>
+ * <p>
+ * Ist auch die Treffermenge des selektivsten Kriteriums groß, z.B. bei einem weiten Preisbereich oder einem zu
+ * kurzen Namen für den Trigramm-Index, werden die Prüfungen über den {@link ParallelerScan} ausgeführt.
+ * </p>
+ */
+final class AutohausSuche {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AutohausSuche.class);
+
+    private final AutoInventar inventar;
+    private final List<String> namen;
+    private final TrigramIndex nameIndex;
+    private final List<AutoKriterium> autoKriterien;
+
+    private AutohausSuche(
+        final AutoInventar inventar,
+        final List<String> namen,
+        final TrigramIndex nameIndex,
+        final List<AutoKriterium> autoKriterien
+    ) {
+        this.inventar = inventar;
+        this.namen = namen;
+        this.nameIndex = nameIndex;
+        this.autoKriterien = autoKriterien;
+    }
+
+    /**
+     * Erstellt den Abfrageplan für die Suchkriterien.
+     * <p>
+     * Unterstützt werden "name", "marke", "modell", "besitzer" und "baujahr" mit beliebig vielen Werten sowie
+     * "baujahrMin", "baujahrMax", "preisMin" und "preisMax" mit jeweils dem ersten Wert.
+     * </p>
+     *
+     * @param suchkriterien die Suchkriterien.
+     * @param inventar der Bestand der Autos mit den Sekundärindexen.
+     * @param nameIndex der Trigramm-Index über die Namen der Autohäuser.
+     * @return leeres Optional bei einem unbekannten Suchkriterium oder einer ungültigen Zahl, sonst der Plan.
+     */
+    @SuppressWarnings({"CyclomaticComplexity", "checkstyle:CyclomaticComplexity"})
+    static Optional<AutohausSuche> planen(
+        final Map<String, List<String>> suchkriterien,
+        final AutoInventar inventar,
+        final TrigramIndex nameIndex
+    ) {
+        final List<String> namen = new ArrayList<>();
+        final List<AutoKriterium> autoKriterien = new ArrayList<>();
+        try {
+            for (final var entry : suchkriterien.entrySet()) {
+                final var werte = entry.getValue();
+                switch (entry.getKey()) {
+                    case "name" -> namen.addAll(werte);
+                    case "marke" -> autoKriterien.add(
+                        new KategorieKriterium(inventar, AutoInventar.Kategorie.MARKE, werte, Auto::getMarke)
+                    );
+                    case "modell" -> autoKriterien.add(
+                        new KategorieKriterium(inventar, AutoInventar.Kategorie.MODELL, werte, Auto::getModell)
+                    );
+                    case "besitzer" -> autoKriterien.add(
+                        new KategorieKriterium(inventar, AutoInventar.Kategorie.BESITZER, werte, Auto::getBesitzer)
+                    );
+                    case "baujahr" -> autoKriterien.add(baujahr(inventar, werte.stream()
+                        .map(wert -> new Bereich(baujahr(wert), baujahr(wert)))
+                        .toList()));
+                    case "baujahrMin", "baujahrMax", "preisMin", "preisMax" -> {
+                        // Unter- und Obergrenze gemeinsam beim ersten Vorkommen auswerten
+                    }
+                    default -> {
+                        LOGGER.debug("planen: ungueltiges Suchkriterium={}", entry.getKey());
+                        return Optional.empty();
+                    }
+                }
+            }
+            final var baujahrMin = erster(suchkriterien, "baujahrMin");
+            final var baujahrMax = erster(suchkriterien, "baujahrMax");
+            if (baujahrMin != null || baujahrMax != null) {
+                autoKriterien.add(baujahr(inventar, List.of(new Bereich(
+                    baujahrMin == null ? Integer.MIN_VALUE : baujahr(baujahrMin),
+                    baujahrMax == null ? Integer.MAX_VALUE : baujahr(baujahrMax)
+                ))));
+            }
+            final var preisMin = erster(suchkriterien, "preisMin");
+            final var preisMax = erster(suchkriterien, "preisMax");
+            if (preisMin != null || preisMax != null) {
+                // KEIN_PREIS ist Long.MIN_VALUE und liegt damit immer unter der Untergrenze
+                autoKriterien.add(preis(inventar, new Bereich(
+                    preisMin == null ? KEIN_PREIS + 1 : AutoInventar.cent(new BigDecimal(preisMin)),
+                    preisMax == null ? Long.MAX_VALUE : AutoInventar.cent(new BigDecimal(preisMax))
+                )));
+            }
+        } catch (final ArithmeticException | NumberFormatException ex) {
+            LOGGER.debug("planen: ungueltige Zahl in {}", suchkriterien);
+            return Optional.empty();
+        }
+        return Optional.of(new AutohausSuche(inventar, List.copyOf(namen), nameIndex, List.copyOf(autoKriterien)));
+    }
+
+    /**
+     * Führt den Plan aus.
+     *
+     * @param store der Speicher mit den aktuellen Versionen der Autohäuser.
+     * @param scan für Prüfungen über viele Autohäuser oder Zeilen.
+     * @return die gefundenen Autohäuser in der Reihenfolge, in der sie angelegt wurden.
+     */
+    List<Autohaus> ausfuehren(final AutohausStore store, final ParallelerScan scan) {
+        final var kandidaten = namensKandidaten();
+        if (autoKriterien.isEmpty()) {
+            final var autohaeuser = kandidaten.isPresent() ? store.get(kandidaten.get()) : store.list();
+            return pruefen(autohaeuser, scan);
+        }
+
+        // Zeilennummern sind nur bis zum naechsten Kompaktieren des Inventars gueltig
+        final var ids = inventar.lesen(() -> autohausIds(kandidaten, scan));
+        return pruefen(store.get(ids), scan);
+    }
+
+    /**
+     * Führt den Plan für eine Seite aus. Die Autohäuser werden erst ab der ersten Position der Seite gelesen und
+     * geprüft, und nur so lange, bis die Seite voll ist.
+     *
+     * @param store der Speicher mit den aktuellen Versionen der Autohäuser.
+     * @param scan für Prüfungen über viele Zeilen des Inventars.
+     * @param ab die erste Position der Seite.
+     * @param limit die maximale Anzahl der Autohäuser.
+     * @return die gefundenen Autohäuser in der Reihenfolge, in der sie angelegt wurden.
+     */
+    List<Autohaus> seite(final AutohausStore store, final ParallelerScan scan, final int ab, final int limit) {
+        final var kandidaten = namensKandidaten();
+        final var ids = autoKriterien.isEmpty()
+            ? kandidaten
+            : Optional.of(inventar.lesen(() -> autohausIds(kandidaten, scan)));
+        try (var snapshot = store.snapshot()) {
+            return ids.isPresent()
+                ? snapshot.seite(ids.get(), ab, limit, this::passt)
+                : snapshot.seite(ab, limit, this::passt);
+        }
+    }
+
+    // IDs der Autohaeuser, die ein Auto mit allen Kriterien haben; nur innerhalb von AutoInventar.lesen aufrufen
+    private Set<UUID> autohausIds(final Optional<Set<UUID>> kandidaten, final ParallelerScan scan) {
+        // das Kriterium mit den wenigsten Treffern liefert die Kandidaten
+        AutoKriterium treiber = null;
+        var schaetzung = Long.MAX_VALUE;
+        for (final var kriterium : autoKriterien) {
+            final var anzahl = kriterium.schaetzung(schaetzung);
+            if (anzahl < schaetzung) {
+                schaetzung = anzahl;
+                treiber = kriterium;
+            }
+        }
+        LOGGER.debug("ausfuehren: treiber={}, schaetzung={}", treiber, schaetzung);
+
+        if (kandidaten.isPresent() && kandidaten.get().size() <= schaetzung) {
+            // der Name ist selektiver als jedes Kriterium ueber Autos
+            return kandidaten.get();
+        }
+        final var selektivstes = Objects.requireNonNull(treiber);
+        final var rest = autoKriterien.stream()
+            .filter(kriterium -> kriterium != selektivstes)
+            .toArray(AutoKriterium[]::new);
+        final var treffer = scan.filtern(selektivstes.zeilen(), schaetzung, zeile -> passt(rest, zeile), rest.length);
+        final Set<UUID> ids = IntStream.of(treffer)
+            .mapToObj(inventar::autohausId)
+            .collect(Collectors.toSet());
+        kandidaten.ifPresent(ids::retainAll);
+        return ids;
+    }
+
+    // Vereinigung der Kandidaten aller Namen, falls jeder Name lang genug fuer den Trigramm-Index ist
+    private Optional<Set<UUID>> namensKandidaten() {
+        if (namen.isEmpty()) {
+            return Optional.empty();
+        }
+        final Set<UUID> vereinigung = new HashSet<>();
+        for (final var name : namen) {
+            final var kandidaten = nameIndex.kandidaten(name);
+            if (kandidaten.isEmpty()) {
+                return Optional.empty();
+            }
+            vereinigung.addAll(kandidaten.get());
+        }
+        return Optional.of(vereinigung);
+    }
+
+    // aktuelle Versionen vollstaendig pruefen, weil Indexe und Inventar waehrend einer Aenderung kurzzeitig
+    // alte und neue Werte enthalten koennen
+    private List<Autohaus> pruefen(final List<Autohaus> autohaeuser, final ParallelerScan scan) {
+        return scan.filtern(autohaeuser, this::passt, namen.size() + autoKriterien.size());
+    }
+
+    private boolean passt(final Autohaus autohaus) {
+        return (namen.isEmpty() || namen.stream().anyMatch(name -> autohaus.getName().contains(name)))
+            && (autoKriterien.isEmpty() || autohaus.getAutos().stream().anyMatch(this::passt));
+    }
+
+    private boolean passt(final Auto auto) {
+        for (final var kriterium : autoKriterien) {
+            if (!kriterium.passt(auto)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean passt(final AutoKriterium[] kriterien, final int zeile) {
+        for (final var kriterium : kriterien) {
+            if (!kriterium.passt(zeile)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String erster(final Map<String, List<String>> suchkriterien, final String name) {
+        final var werte = suchkriterien.get(name);
+        return werte == null || werte.isEmpty() ? null : werte.getFirst();
+    }
+
+    private static int baujahr(final String wert) {
+        return new BigDecimal(wert).intValueExact();
+    }
+
+    private static AutoKriterium baujahr(final AutoInventar inventar, final List<Bereich> bereiche) {
+        return new BereichKriterium("baujahr", bereiche, inventar::baujahr, Auto::getBaujahr, new Bereichsindex() {
+            @Override
+            public IntStream zeilen(final long von, final long bis) {
+                return inventar.zeilenMitBaujahr((int) von, (int) bis);
+            }
+
+            @Override
+            public long anzahl(final long von, final long bis, final long grenze) {
+                return inventar.anzahlMitBaujahr((int) von, (int) bis, grenze);
+            }
+        });
+    }
+
+    private static AutoKriterium preis(final AutoInventar inventar, final Bereich bereich) {
+        return new BereichKriterium(
+            "preis",
+            List.of(bereich),
+            inventar::preisCent,
+            auto -> AutoInventar.cent(auto.getPreis()),
+            new Bereichsindex() {
+                @Override
+                public IntStream zeilen(final long von, final long bis) {
+                    return inventar.zeilenMitPreis(von, bis);
+                }
+
+                @Override
+                public long anzahl(final long von, final long bis, final long grenze) {
+                    return inventar.anzahlMitPreis(von, bis, grenze);
+                }
+            }
+        );
+    }
+
+    /**
+     * Kriterium über ein Attribut eines Autos.
+     */
+    private interface AutoKriterium {
+        // geschaetzte Anzahl der Treffer; oberhalb der Grenze darf die Schaetzung abbrechen
+        long schaetzung(long grenze);
+
+        // Treffer aus dem Index
+        IntStream zeilen();
+
+        // Pruefung einer Zeile ueber die Spalten des Inventars
+        boolean passt(int zeile);
+
+        // Pruefung eines Autos der aktuellen Version
+        boolean passt(Auto auto);
+    }
+
+    /**
+     * Sortierter Index für ein Bereichskriterium.
+     */
+    private interface Bereichsindex {
+        IntStream zeilen(long von, long bis);
+
+        long anzahl(long von, long bis, long grenze);
+    }
+
+    private record Bereich(long von, long bis) {
+        boolean enthaelt(final long wert) {
+            return wert >= von && wert <= bis;
+        }
+    }
+
+    /**
+     * Gleichheit mit einem von mehreren Werten einer kategorischen Spalte über den Hash-Index.
+     */
+    private static final class KategorieKriterium implements AutoKriterium {
+        private final AutoInventar inventar;
+        private final AutoInventar.Kategorie kategorie;
+        private final List<String> werte;
+        private final Function<Auto, String> attribut;
+        // Codes der Werte, die im Woerterbuch vorhanden sind
+        private final int[] codes;
+
+        KategorieKriterium(
+            final AutoInventar inventar,
+            final AutoInventar.Kategorie kategorie,
+            final List<String> werte,
+            final Function<Auto, String> attribut
+        ) {
+            this.inventar = inventar;
+            this.kategorie = kategorie;
+            this.werte = werte.stream().distinct().toList();
+            this.attribut = attribut;
+            codes = this.werte.stream()
+                .mapToInt(wert -> inventar.code(kategorie, wert))
+                .filter(code -> code != AutoInventar.KEIN_CODE)
+                .toArray();
+        }
+
+        @Override
+        public long schaetzung(final long grenze) {
+            return werte.stream().mapToLong(wert -> inventar.anzahl(kategorie, wert)).sum();
+        }
+
+        @Override
+        public IntStream zeilen() {
+            return werte.stream().flatMapToInt(wert -> inventar.zeilen(kategorie, wert));
+        }
+
+        @Override
+        public boolean passt(final int zeile) {
+            final var code = inventar.code(kategorie, zeile);
+            for (final var c : codes) {
+                if (c == code) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean passt(final Auto auto) {
+            return werte.contains(attribut.apply(auto));
+        }
+
+        @Override
+        public String toString() {
+            return kategorie + "=" + werte;
+        }
+    }
+
+    /**
+     * Wert in einem von mehreren Bereichen einer numerischen Spalte über einen sortierten Index.
+     */
+    private record BereichKriterium(
+        String name,
+        List<Bereich> bereiche,
+        IntToLongFunction spalte,
+        ToLongFunction<Auto> attribut,
+        Bereichsindex index
+    ) implements AutoKriterium {
+        @Override
+        public long schaetzung(final long grenze) {
+            var anzahl = 0L;
+            for (final var bereich : bereiche) {
+                anzahl += index.anzahl(bereich.von(), bereich.bis(), grenze - anzahl);
+                if (anzahl > grenze) {
+                    break;
+                }
+            }
+            return anzahl;
+        }
+
+        @Override
+        public IntStream zeilen() {
+            return bereiche.stream().flatMapToInt(bereich -> index.zeilen(bereich.von(), bereich.bis()));
+        }
+
+        @Override
+        public boolean passt(final int zeile) {
+            return enthaelt(spalte.applyAsLong(zeile));
+        }
+
+        @Override
+        public boolean passt(final Auto auto) {
+            return enthaelt(attribut.applyAsLong(auto));
+        }
+
+        private boolean enthaelt(final long wert) {
+            for (final var bereich : bereiche) {
+                if (bereich.enthaelt(wert)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + bereiche;
+        }
+    }
+}
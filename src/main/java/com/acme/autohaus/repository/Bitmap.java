@@ -0,0 +1,479 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import java.util.Arrays;
+
+/**
+ * Komprimierte Bitmenge nicht-negativer {@code int}-Werte nach dem Vorbild von Roaring Bitmaps.
+ * <p>
+ * Die Werte werden nach ihren oberen 16 Bit in Container aufgeteilt. Ein Container mit höchstens 4096 Werten
+ * speichert die unteren 16 Bit als sortiertes {@code char}-Array, ein vollerer Container als Bitmap mit 1024
+ * {@code long}-Wörtern (8 KB). Dünn besetzte Mengen bleiben dadurch klein und dicht besetzte Mengen werden
+ * wortweise verknüpft. UND, ODER und die Anzahl einer Schnittmenge werden containerweise berechnet, ohne einzelne
+ * Werte zu erzeugen.
+ * </p>
+ * <p>
+ * Die Klasse ist nicht thread-sicher; die Verknüpfungen verändern ihre Operanden nicht.
+ * </p>
+ */
+@SuppressWarnings({"MagicNumber", "checkstyle:MagicNumber"})
+final class Bitmap {
+    private static final int MAX_ARRAY = 4096;
+    private static final int WORTE = 1024;
+    private static final int INITIALE_KAPAZITAET = 4;
+
+    // obere 16 Bit der Werte, aufsteigend sortiert, und die zugehoerigen Container
+    private char[] schluessel;
+    private Container[] container;
+    private int anzahl;
+
+    /**
+     * Erstellt eine leere Bitmenge.
+     */
+    Bitmap() {
+        this(new char[INITIALE_KAPAZITAET], new Container[INITIALE_KAPAZITAET], 0);
+    }
+
+    private Bitmap(final char[] schluessel, final Container[] container, final int anzahl) {
+        this.schluessel = schluessel;
+        this.container = container;
+        this.anzahl = anzahl;
+    }
+
+    /**
+     * Fügt einen Wert hinzu.
+     *
+     * @param wert der nicht-negative Wert.
+     */
+    void add(final int wert) {
+        final var hoch = (char) (wert >>> 16);
+        final var i = suchen(hoch);
+        if (i >= 0) {
+            container[i] = container[i].add((char) wert);
+            return;
+        }
+        final var position = -i - 1;
+        if (anzahl == schluessel.length) {
+            schluessel = Arrays.copyOf(schluessel, anzahl * 2);
+            container = Arrays.copyOf(container, anzahl * 2);
+        }
+        System.arraycopy(schluessel, position, schluessel, position + 1, anzahl - position);
+        System.arraycopy(container, position, container, position + 1, anzahl - position);
+        schluessel[position] = hoch;
+        container[position] = new ArrayContainer().add((char) wert);
+        anzahl++;
+    }
+
+    /**
+     * Entfernt einen Wert.
+     *
+     * @param wert der Wert.
+     */
+    void remove(final int wert) {
+        final var i = suchen((char) (wert >>> 16));
+        if (i < 0) {
+            return;
+        }
+        final var neu = container[i].remove((char) wert);
+        if (neu.cardinality() > 0) {
+            container[i] = neu;
+            return;
+        }
+        System.arraycopy(schluessel, i + 1, schluessel, i, anzahl - i - 1);
+        System.arraycopy(container, i + 1, container, i, anzahl - i - 1);
+        anzahl--;
+        container[anzahl] = null;
+    }
+
+    /**
+     * Anzahl der enthaltenen Werte.
+     *
+     * @return die Anzahl.
+     */
+    int cardinality() {
+        var summe = 0;
+        for (var i = 0; i < anzahl; i++) {
+            summe += container[i].cardinality();
+        }
+        return summe;
+    }
+
+    /**
+     * Schnittmenge mit einer anderen Bitmenge.
+     *
+     * @param andere die andere Bitmenge.
+     * @return eine neue Bitmenge.
+     */
+    Bitmap and(final Bitmap andere) {
+        final var ergebnis = new Bitmap(new char[Math.min(anzahl, andere.anzahl) + 1],
+            new Container[Math.min(anzahl, andere.anzahl) + 1], 0);
+        var i = 0;
+        var j = 0;
+        while (i < anzahl && j < andere.anzahl) {
+            final var vergleich = Character.compare(schluessel[i], andere.schluessel[j]);
+            if (vergleich < 0) {
+                i++;
+            } else if (vergleich > 0) {
+                j++;
+            } else {
+                ergebnis.anhaengen(schluessel[i], container[i].and(andere.container[j]));
+                i++;
+                j++;
+            }
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Vereinigung mit einer anderen Bitmenge.
+     *
+     * @param andere die andere Bitmenge.
+     * @return eine neue Bitmenge.
+     */
+    Bitmap or(final Bitmap andere) {
+        final var ergebnis = new Bitmap(new char[anzahl + andere.anzahl + 1],
+            new Container[anzahl + andere.anzahl + 1], 0);
+        var i = 0;
+        var j = 0;
+        while (i < anzahl || j < andere.anzahl) {
+            final var vergleich = i == anzahl ? 1
+                : j == andere.anzahl ? -1
+                : Character.compare(schluessel[i], andere.schluessel[j]);
+            if (vergleich < 0) {
+                ergebnis.anhaengen(schluessel[i], container[i].kopie());
+                i++;
+            } else if (vergleich > 0) {
+                ergebnis.anhaengen(andere.schluessel[j], andere.container[j].kopie());
+                j++;
+            } else {
+                ergebnis.anhaengen(schluessel[i], container[i].or(andere.container[j]));
+                i++;
+                j++;
+            }
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Anzahl der Werte in der Schnittmenge mit einer anderen Bitmenge, ohne die Schnittmenge zu erzeugen.
+     *
+     * @param andere die andere Bitmenge.
+     * @return die Anzahl.
+     */
+    int andCardinality(final Bitmap andere) {
+        var summe = 0;
+        var i = 0;
+        var j = 0;
+        while (i < anzahl && j < andere.anzahl) {
+            final var vergleich = Character.compare(schluessel[i], andere.schluessel[j]);
+            if (vergleich < 0) {
+                i++;
+            } else if (vergleich > 0) {
+                j++;
+            } else {
+                summe += container[i].andCardinality(andere.container[j]);
+                i++;
+                j++;
+            }
+        }
+        return summe;
+    }
+
+    private int suchen(final char hoch) {
+        return Arrays.binarySearch(schluessel, 0, anzahl, hoch);
+    }
+
+    // Container mit groesserem Schluessel als alle bisherigen anhaengen; leere Container entfallen
+    private void anhaengen(final char hoch, final Container neu) {
+        if (neu.cardinality() == 0) {
+            return;
+        }
+        schluessel[anzahl] = hoch;
+        container[anzahl] = neu;
+        anzahl++;
+    }
+
+    /**
+     * Container für die unteren 16 Bit aller Werte mit denselben oberen 16 Bit.
+     */
+    private abstract static sealed class Container permits ArrayContainer, BitmapContainer {
+        abstract Container add(char wert);
+
+        abstract Container remove(char wert);
+
+        abstract boolean contains(char wert);
+
+        abstract int cardinality();
+
+        abstract Container and(Container andere);
+
+        abstract Container or(Container andere);
+
+        abstract int andCardinality(Container andere);
+
+        abstract Container kopie();
+    }
+
+    /**
+     * Dünn besetzter Container mit sortiertem Array.
+     */
+    private static final class ArrayContainer extends Container {
+        private char[] werte;
+        private int anzahl;
+
+        ArrayContainer() {
+            this(new char[INITIALE_KAPAZITAET], 0);
+        }
+
+        ArrayContainer(final char[] werte, final int anzahl) {
+            this.werte = werte;
+            this.anzahl = anzahl;
+        }
+
+        @Override
+        Container add(final char wert) {
+            final var i = Arrays.binarySearch(werte, 0, anzahl, wert);
+            if (i >= 0) {
+                return this;
+            }
+            if (anzahl == MAX_ARRAY) {
+                return BitmapContainer.von(this).add(wert);
+            }
+            final var position = -i - 1;
+            if (anzahl == werte.length) {
+                werte = Arrays.copyOf(werte, Math.min(anzahl * 2, MAX_ARRAY));
+            }
+            System.arraycopy(werte, position, werte, position + 1, anzahl - position);
+            werte[position] = wert;
+            anzahl++;
+            return this;
+        }
+
+        @Override
+        Container remove(final char wert) {
+            final var i = Arrays.binarySearch(werte, 0, anzahl, wert);
+            if (i >= 0) {
+                System.arraycopy(werte, i + 1, werte, i, anzahl - i - 1);
+                anzahl--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(final char wert) {
+            return Arrays.binarySearch(werte, 0, anzahl, wert) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return anzahl;
+        }
+
+        @Override
+        Container and(final Container andere) {
+            final var ergebnis = new char[anzahl];
+            var n = 0;
+            if (andere instanceof ArrayContainer a) {
+                var i = 0;
+                var j = 0;
+                while (i < anzahl && j < a.anzahl) {
+                    if (werte[i] < a.werte[j]) {
+                        i++;
+                    } else if (werte[i] > a.werte[j]) {
+                        j++;
+                    } else {
+                        ergebnis[n++] = werte[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (var i = 0; i < anzahl; i++) {
+                    if (andere.contains(werte[i])) {
+                        ergebnis[n++] = werte[i];
+                    }
+                }
+            }
+            return new ArrayContainer(ergebnis, n);
+        }
+
+        @Override
+        Container or(final Container andere) {
+            if (andere instanceof BitmapContainer b) {
+                return b.or(this);
+            }
+            final var a = (ArrayContainer) andere;
+            final var ergebnis = new char[anzahl + a.anzahl];
+            var n = 0;
+            var i = 0;
+            var j = 0;
+            while (i < anzahl || j < a.anzahl) {
+                if (j == a.anzahl || i < anzahl && werte[i] < a.werte[j]) {
+                    ergebnis[n++] = werte[i++];
+                } else if (i == anzahl || a.werte[j] < werte[i]) {
+                    ergebnis[n++] = a.werte[j++];
+                } else {
+                    ergebnis[n++] = werte[i];
+                    i++;
+                    j++;
+                }
+            }
+            final var vereinigung = new ArrayContainer(ergebnis, n);
+            return n > MAX_ARRAY ? BitmapContainer.von(vereinigung) : vereinigung;
+        }
+
+        @Override
+        int andCardinality(final Container andere) {
+            var summe = 0;
+            for (var i = 0; i < anzahl; i++) {
+                if (andere.contains(werte[i])) {
+                    summe++;
+                }
+            }
+            return summe;
+        }
+
+        @Override
+        Container kopie() {
+            return new ArrayContainer(Arrays.copyOf(werte, Math.max(anzahl, 1)), anzahl);
+        }
+    }
+
+    /**
+     * Dicht besetzter Container mit 65536 Bits.
+     */
+    private static final class BitmapContainer extends Container {
+        private final long[] worte;
+        private int anzahl;
+
+        BitmapContainer(final long[] worte, final int anzahl) {
+            this.worte = worte;
+            this.anzahl = anzahl;
+        }
+
+        static BitmapContainer von(final ArrayContainer array) {
+            final var worte = new long[WORTE];
+            for (var i = 0; i < array.anzahl; i++) {
+                worte[array.werte[i] >>> 6] |= 1L << array.werte[i];
+            }
+            return new BitmapContainer(worte, array.anzahl);
+        }
+
+        @Override
+        Container add(final char wert) {
+            final var vorher = worte[wert >>> 6];
+            final var nachher = vorher | 1L << wert;
+            if (vorher != nachher) {
+                worte[wert >>> 6] = nachher;
+                anzahl++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(final char wert) {
+            final var vorher = worte[wert >>> 6];
+            final var nachher = vorher & ~(1L << wert);
+            if (vorher != nachher) {
+                worte[wert >>> 6] = nachher;
+                anzahl--;
+            }
+            return anzahl <= MAX_ARRAY ? zuArray(worte, anzahl) : this;
+        }
+
+        @Override
+        boolean contains(final char wert) {
+            return (worte[wert >>> 6] & 1L << wert) != 0L;
+        }
+
+        @Override
+        int cardinality() {
+            return anzahl;
+        }
+
+        @Override
+        Container and(final Container andere) {
+            if (andere instanceof ArrayContainer a) {
+                return a.and(this);
+            }
+            final var b = (BitmapContainer) andere;
+            final var ergebnis = new long[WORTE];
+            var n = 0;
+            for (var i = 0; i < WORTE; i++) {
+                ergebnis[i] = worte[i] & b.worte[i];
+                n += Long.bitCount(ergebnis[i]);
+            }
+            return n <= MAX_ARRAY ? zuArray(ergebnis, n) : new BitmapContainer(ergebnis, n);
+        }
+
+        @Override
+        Container or(final Container andere) {
+            final var ergebnis = worte.clone();
+            if (andere instanceof ArrayContainer a) {
+                var n = anzahl;
+                for (var i = 0; i < a.anzahl; i++) {
+                    final var wert = a.werte[i];
+                    if ((ergebnis[wert >>> 6] & 1L << wert) == 0L) {
+                        ergebnis[wert >>> 6] |= 1L << wert;
+                        n++;
+                    }
+                }
+                return new BitmapContainer(ergebnis, n);
+            }
+            final var b = (BitmapContainer) andere;
+            var n = 0;
+            for (var i = 0; i < WORTE; i++) {
+                ergebnis[i] |= b.worte[i];
+                n += Long.bitCount(ergebnis[i]);
+            }
+            return new BitmapContainer(ergebnis, n);
+        }
+
+        @Override
+        int andCardinality(final Container andere) {
+            if (andere instanceof ArrayContainer a) {
+                return a.andCardinality(this);
+            }
+            final var b = (BitmapContainer) andere;
+            var summe = 0;
+            for (var i = 0; i < WORTE; i++) {
+                summe += Long.bitCount(worte[i] & b.worte[i]);
+            }
+            return summe;
+        }
+
+        @Override
+        Container kopie() {
+            return new BitmapContainer(worte.clone(), anzahl);
+        }
+
+        private static ArrayContainer zuArray(final long[] worte, final int anzahl) {
+            final var werte = new char[Math.max(anzahl, 1)];
+            var n = 0;
+            for (var i = 0; i < WORTE; i++) {
+                var wort = worte[i];
+                while (wort != 0L) {
+                    werte[n++] = (char) (i << 6 | Long.numberOfTrailingZeros(wort));
+                    wort &= wort - 1;
+                }
+            }
+            return new ArrayContainer(werte, n);
+        }
+    }
+}
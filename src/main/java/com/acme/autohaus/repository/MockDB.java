@@ -37,7 +37,7 @@ import java.util.stream.Stream;
     "UtilityClass", "MagicNumber", "RedundantSuppression", "java:S1192"})
 public final class MockDB {
     /**
-     * Liste der Autohäuser
+     * Unveränderliche Liste der initialen Autohäuser, mit denen das Repository befüllt wird.
      */
     @SuppressWarnings("StaticCollection")
     static final List<Autohaus> AUTOHAEUSER;
@@ -50,7 +50,7 @@ public final class MockDB {
             createUrbanAutos(),
             createLuxuryMotors(),
             createEcoCars()
-        ).collect(Collectors.toList());
+        ).toList();
     }
 
     private MockDB() {
@@ -0,0 +1,128 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ausführung von Filtern über viele Autohäuser oder Zeilen des {@link AutoInventar}, die kein Index beantwortet.
+ * <p>
+ * Aus der Anzahl der Elemente und den Kosten je Element wird die Anzahl der Prüfungen geschätzt. Unterhalb der
+ * {@link ScanProperties#schwelle() Schwelle} wird sequentiell im aufrufenden Thread gefiltert, weil sich das
+ * Aufteilen und Zusammenführen dann nicht lohnt. Darüber wird die Liste bzw. das Array über seinen
+ * {@link java.util.Spliterator} in Teile zerlegt, die in einem eigenen {@link ForkJoinPool} mit Plattform-Threads
+ * geprüft werden. Ein paralleler Stream, der in einem Task eines {@link ForkJoinPool} gestartet wird, verwendet
+ * dessen Threads; so werden weder der gemeinsame Pool noch die Träger-Threads der virtuellen Threads belegt, und
+ * der aufrufende virtuelle Thread gibt seinen Träger-Thread während des Wartens frei.
+ * </p>
+ * <p>
+ * Die Prädikate werden parallel aufgerufen und dürfen deshalb nur lesen. Die Reihenfolge der Treffer entspricht
+ * der Reihenfolge der Eingabe.
+ * </p>
+ */
+final class ParallelerScan implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelerScan.class);
+
+    private final ForkJoinPool pool;
+    private final long schwelle;
+
+    /**
+     * Erstellt den Pool gemäß der Konfiguration.
+     *
+     * @param properties Parallelität und Schwelle.
+     */
+    ParallelerScan(final ScanProperties properties) {
+        final var parallelitaet = properties.parallelitaet() > 0
+            ? properties.parallelitaet()
+            : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(
+            parallelitaet,
+            forkJoinPool -> {
+                final var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("autohaus-scan-" + thread.getPoolIndex());
+                return thread;
+            },
+            null,
+            false
+        );
+        schwelle = properties.schwelle();
+        LOGGER.debug("ParallelerScan: parallelitaet={}, schwelle={}", parallelitaet, schwelle);
+    }
+
+    /**
+     * Filtert eine Liste.
+     *
+     * @param elemente die Elemente, z.B. alle Autohäuser.
+     * @param praedikat das Prädikat.
+     * @param kostenJeElement die geschätzte Anzahl der Prüfungen je Element.
+     * @param <T> der Typ der Elemente.
+     * @return unveränderliche Liste der passenden Elemente.
+     */
+    <T> List<T> filtern(final List<T> elemente, final Predicate<? super T> praedikat, final long kostenJeElement) {
+        if (!parallel(elemente.size(), kostenJeElement)) {
+            return elemente.stream().filter(praedikat).toList();
+        }
+        LOGGER.trace("filtern: parallel, anzahl={}", elemente.size());
+        return pool.submit(() -> elemente.parallelStream().filter(praedikat).toList()).join();
+    }
+
+    /**
+     * Filtert Zeilennummern, z.B. die Treffer des selektivsten Index.
+     *
+     * @param zeilen die Zeilennummern.
+     * @param geschaetzteAnzahl die geschätzte Anzahl der Zeilennummern.
+     * @param praedikat das Prädikat.
+     * @param kostenJeZeile die geschätzte Anzahl der Prüfungen je Zeile.
+     * @return die passenden Zeilennummern.
+     */
+    int[] filtern(
+        final IntStream zeilen,
+        final long geschaetzteAnzahl,
+        final IntPredicate praedikat,
+        final long kostenJeZeile
+    ) {
+        if (!parallel(geschaetzteAnzahl, kostenJeZeile)) {
+            return zeilen.filter(praedikat).toArray();
+        }
+        // erst einsammeln: ein Array laesst sich im Gegensatz zu den verketteten Zeilenlisten gleichmaessig teilen
+        final var alle = zeilen.toArray();
+        LOGGER.trace("filtern: parallel, anzahl={}", alle.length);
+        return pool.submit(() -> IntStream.of(alle).parallel().filter(praedikat).toArray()).join();
+    }
+
+    /**
+     * Beendet den Pool; laufende Suchen werden noch abgeschlossen.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private boolean parallel(final long anzahl, final long kostenJeElement) {
+        return pool.getParallelism() > 1
+            && anzahl > 1
+            && kostenJeElement > 0
+            && anzahl >= schwelle / kostenJeElement;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Konfiguration der eingebetteten Persistenz des Repositorys aus {@code app.persistenz.*}.
+ *
+ * @param enabled Flag, ob Schreibzugriffe in einem Journal protokolliert und beim Start wieder eingespielt werden.
+ * @param verzeichnis Verzeichnis für die Journal- und die Snapshot-Datei.
+ * @param sync Flag, ob ein Schreibzugriff erst zurückkehrt, nachdem das Journal auf den Datenträger geschrieben ist.
+ * @param gruppenIntervall maximale Wartezeit, um mehrere Schreibzugriffe mit einem gemeinsamen fsync zu sichern.
+ * @param segmentGroesse Größe des jeweils eingeblendeten Bereichs der Journal-Datei.
+ * @param snapshotIntervall Abstand, in dem ein Snapshot aller Autohäuser geschrieben wird.
+ */
+@ConfigurationProperties(prefix = "app.persistenz")
+public record PersistenzProperties(
+    @DefaultValue("false")
+    boolean enabled,
+
+    @DefaultValue("/tmp/autohaus")
+    Path verzeichnis,
+
+    @DefaultValue("true")
+    boolean sync,
+
+    @DefaultValue("1ms")
+    Duration gruppenIntervall,
+
+    @DefaultValue("64MB")
+    DataSize segmentGroesse,
+
+    @DefaultValue("10m")
+    Duration snapshotIntervall
+) {
+}
@@ -0,0 +1,37 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Konfiguration der parallelen Suche im Repository aus {@code app.scan.*}.
+ *
+ * @param parallelitaet Anzahl der Threads für parallele Suchen; 0 für die Anzahl der Prozessoren.
+ * @param schwelle geschätzte Anzahl der Prüfungen, ab der eine Suche parallel ausgeführt wird.
+ */
+@ConfigurationProperties(prefix = "app.scan")
+public record ScanProperties(
+    @DefaultValue("0")
+    int parallelitaet,
+
+    @DefaultValue("50000")
+    long schwelle
+) {
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Invertierter Index über alle Trigramme (Teilstrings der Länge 3) eines Namens.
+ * <p>
+ * Ein Name, der einen Suchstring enthält, muss auch alle Trigramme des Suchstrings enthalten. Die Schnittmenge der
+ * zugehörigen Einträge liefert deshalb eine kleine Kandidatenmenge, die anschließend noch mit
+ * {@link String#contains(CharSequence)} verifiziert werden muss.
+ * </p>
+ */
+@SuppressWarnings({"MagicNumber", "checkstyle:MagicNumber"})
+final class TrigramIndex {
+    /**
+     * Minimale Länge eines Suchstrings, damit der Index verwendet werden kann.
+     */
+    static final int MIN_LAENGE = 3;
+
+    // Trigramm, kodiert als 3 x 16 Bit in einem long -> IDs der Autohaeuser
+    private final ConcurrentMap<Long, Set<UUID>> eintraege = new ConcurrentHashMap<>();
+
+    /**
+     * Erstellt einen leeren Index.
+     */
+    TrigramIndex() {
+    }
+
+    /**
+     * Nimmt alle Trigramme eines Namens für eine ID in den Index auf.
+     *
+     * @param name der Name; null wird ignoriert.
+     * @param id die ID des Autohauses.
+     */
+    void add(final String name, final UUID id) {
+        if (name == null) {
+            return;
+        }
+        for (var i = 0; i + MIN_LAENGE <= name.length(); i++) {
+            eintraege.compute(trigramm(name, i), (_, ids) -> {
+                final var neueIds = ids == null ? ConcurrentHashMap.<UUID>newKeySet() : ids;
+                neueIds.add(id);
+                return neueIds;
+            });
+        }
+    }
+
+    /**
+     * Entfernt alle Trigramme eines Namens für eine ID aus dem Index.
+     *
+     * @param name der bisherige Name; null wird ignoriert.
+     * @param id die ID des Autohauses.
+     */
+    void remove(final String name, final UUID id) {
+        if (name == null) {
+            return;
+        }
+        for (var i = 0; i + MIN_LAENGE <= name.length(); i++) {
+            eintraege.computeIfPresent(trigramm(name, i), (_, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Ermittelt die Kandidaten, deren Name den Suchstring enthalten kann.
+     *
+     * @param suchstring der Suchstring.
+     * @return leeres Optional, falls der Suchstring zu kurz für den Index ist, sonst die Kandidaten, die noch
+     * verifiziert werden müssen.
+     */
+    Optional<Set<UUID>> kandidaten(final String suchstring) {
+        if (suchstring.length() < MIN_LAENGE) {
+            return Optional.empty();
+        }
+
+        final List<Set<UUID>> treffer = new ArrayList<>();
+        for (var i = 0; i + MIN_LAENGE <= suchstring.length(); i++) {
+            final var ids = eintraege.get(trigramm(suchstring, i));
+            if (ids == null) {
+                return Optional.of(Set.of());
+            }
+            treffer.add(ids);
+        }
+
+        // mit der kleinsten Menge beginnen und gegen die restlichen Mengen schneiden
+        treffer.sort(Comparator.comparingInt(Set::size));
+        final var rest = treffer.subList(1, treffer.size());
+        final var kandidaten = treffer.getFirst().stream()
+            .filter(id -> rest.stream().allMatch(ids -> ids.contains(id)))
+            .collect(Collectors.toSet());
+        return Optional.of(kandidaten);
+    }
+
+    private static long trigramm(final String s, final int start) {
+        return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+    }
+}
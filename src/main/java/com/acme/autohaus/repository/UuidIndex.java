@@ -0,0 +1,165 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Primärschlüssel-Index von einer UUID auf die Position eines Autohauses im Speicher.
+ * <p>
+ * Die UUID wird als Paar von zwei {@code long}-Werten abgelegt, so dass beim Nachschlagen weder Strings noch
+ * UUID-Objekte erzeugt werden. Kollisionen werden durch offene Adressierung mit linearem Sondieren aufgelöst.
+ * </p>
+ * <p>
+ * Schreibende Zugriffe müssen von außen synchronisiert werden. Lesende Zugriffe erfolgen ohne Sperre: die Tabelle
+ * ist höchstens halb gefüllt und wird beim Vergrößern vollständig aufgebaut und erst danach über das
+ * {@code volatile}-Feld veröffentlicht, so dass ein Lesezugriff immer terminiert und nie auf Arrays
+ * unterschiedlicher Länge zugreift. Ein Slot wechselt nur einmal von leer auf UUID und Position; ein paralleler
+ * Lesezugriff sieht einen halb beschriebenen Slot deshalb als leer oder als andere UUID, also höchstens als
+ * {@link #NICHT_VORHANDEN}, aber nie mit falscher Position.
+ * </p>
+ * <p>
+ * Eine neu eingetragene Position gilt erst, wenn der Aufrufer sie veröffentlicht hat: der {@link AutohausStore}
+ * trägt die Position ein, bevor er seine {@code volatile} Anzahl erhöht, und verwirft beim Lesen jede Position
+ * ab dieser Anzahl.
+ * </p>
+ */
+@SuppressWarnings({"MagicNumber", "checkstyle:MagicNumber"})
+final class UuidIndex {
+    /**
+     * Rückgabewert, falls eine UUID nicht im Index enthalten ist.
+     */
+    static final int NICHT_VORHANDEN = -1;
+
+    private static final int INITIALE_KAPAZITAET = 16;
+
+    private volatile Tabelle tabelle = new Tabelle(INITIALE_KAPAZITAET);
+    private int size;
+
+    /**
+     * Erstellt einen leeren Index.
+     */
+    UuidIndex() {
+    }
+
+    /**
+     * Sucht die Position zu einer UUID.
+     *
+     * @param id die gesuchte UUID.
+     * @return die Position oder {@link #NICHT_VORHANDEN}.
+     */
+    int get(final UUID id) {
+        return get(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    /**
+     * Sucht die Position zu einer UUID, die als zwei {@code long}-Werte vorliegt.
+     *
+     * @param msb die oberen 64 Bit der UUID.
+     * @param lsb die unteren 64 Bit der UUID.
+     * @return die Position oder {@link #NICHT_VORHANDEN}.
+     */
+    int get(final long msb, final long lsb) {
+        final var t = tabelle;
+        final var maske = t.positionen.length - 1;
+        var slot = hash(msb, lsb) & maske;
+        while (t.positionen[slot] != NICHT_VORHANDEN) {
+            if (t.msbs[slot] == msb && t.lsbs[slot] == lsb) {
+                return t.positionen[slot];
+            }
+            slot = (slot + 1) & maske;
+        }
+        return NICHT_VORHANDEN;
+    }
+
+    /**
+     * Trägt eine UUID mit ihrer Position ein bzw. überschreibt die vorhandene Position.
+     *
+     * @param id die UUID.
+     * @param position die Position im Speicher; darf nicht negativ sein.
+     */
+    void put(final UUID id, final int position) {
+        if ((size + 1) * 2 > tabelle.positionen.length) {
+            vergroessern();
+        }
+        if (tabelle.einfuegen(id.getMostSignificantBits(), id.getLeastSignificantBits(), position)) {
+            size++;
+        }
+    }
+
+    /**
+     * Anzahl der eingetragenen UUIDs.
+     *
+     * @return die Anzahl.
+     */
+    int size() {
+        return size;
+    }
+
+    private void vergroessern() {
+        final var alt = tabelle;
+        final var neu = new Tabelle(alt.positionen.length * 2);
+        for (var i = 0; i < alt.positionen.length; i++) {
+            if (alt.positionen[i] != NICHT_VORHANDEN) {
+                neu.einfuegen(alt.msbs[i], alt.lsbs[i], alt.positionen[i]);
+            }
+        }
+        tabelle = neu;
+    }
+
+    // Finalizer von MurmurHash3, damit auch schwach verteilte UUIDs gleichmäßig auf die Slots verteilt werden
+    private static int hash(final long msb, final long lsb) {
+        var h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static final class Tabelle {
+        private final long[] msbs;
+        private final long[] lsbs;
+        private final int[] positionen;
+
+        Tabelle(final int kapazitaet) {
+            msbs = new long[kapazitaet];
+            lsbs = new long[kapazitaet];
+            positionen = new int[kapazitaet];
+            Arrays.fill(positionen, NICHT_VORHANDEN);
+        }
+
+        boolean einfuegen(final long msb, final long lsb, final int position) {
+            final var maske = positionen.length - 1;
+            var slot = hash(msb, lsb) & maske;
+            while (positionen[slot] != NICHT_VORHANDEN) {
+                if (msbs[slot] == msb && lsbs[slot] == lsb) {
+                    positionen[slot] = position;
+                    return false;
+                }
+                slot = (slot + 1) & maske;
+            }
+            msbs[slot] = msb;
+            lsbs[slot] = lsb;
+            positionen[slot] = position;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.acme.autohaus.repository;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Aufsteigende Liste von Zeilennummern des {@link AutoInventar} als Eintrag eines Sekundärindex.
+ * <p>
+ * Zeilen werden nur angehängt; gelöschte Zeilen bleiben zunächst stehen und werden beim Lesen über das Inventar
+ * ausgefiltert. Sobald mehr als die Hälfte der Einträge gelöscht ist, wird die Liste kompaktiert. Schreibende Zugriffe
+ * müssen von außen synchronisiert werden. Lesende Zugriffe dürfen parallel erfolgen: ein Block wird beim Vergrößern
+ * oder Kompaktieren als Ganzes ausgetauscht und innerhalb eines Blocks werden nur Einträge hinter der veröffentlichten
+ * Anzahl geschrieben.
+ * </p>
+ */
+final class ZeilenListe {
+    private static final int INITIALE_KAPAZITAET = 4;
+    private static final int MIN_KOMPAKTIEREN = 16;
+
+    private volatile Block block = new Block(new int[INITIALE_KAPAZITAET], 0);
+
+    // Anzahl der nicht geloeschten Zeilen; nur unter der Sperre des Inventars
+    private int lebendig;
+
+    /**
+     * Erstellt eine leere Liste.
+     */
+    ZeilenListe() {
+    }
+
+    /**
+     * Hängt eine Zeile an, deren Nummer größer als alle bisherigen ist.
+     *
+     * @param zeile die Zeilennummer.
+     */
+    void add(final int zeile) {
+        var b = block;
+        final var n = b.anzahl;
+        if (n == b.zeilen.length) {
+            b = new Block(Arrays.copyOf(b.zeilen, n * 2), n);
+            block = b;
+        }
+        b.zeilen[n] = zeile;
+        b.anzahl = n + 1;
+        lebendig++;
+    }
+
+    /**
+     * Meldet, dass eine Zeile der Liste gelöscht wurde, und kompaktiert die Liste bei Bedarf.
+     *
+     * @param vorhanden Prädikat für die nicht gelöschten Zeilen.
+     */
+    void entfernt(final IntPredicate vorhanden) {
+        lebendig--;
+        final var b = block;
+        if (b.anzahl >= MIN_KOMPAKTIEREN && lebendig < b.anzahl / 2) {
+            final var zeilen = Arrays.stream(b.zeilen, 0, b.anzahl).filter(vorhanden).toArray();
+            block = new Block(Arrays.copyOf(zeilen, Math.max(INITIALE_KAPAZITAET, zeilen.length)), zeilen.length);
+        }
+    }
+
+    /**
+     * Anzahl der nicht gelöschten Zeilen als Schätzung für die Selektivität.
+     *
+     * @return die Anzahl.
+     */
+    int lebendig() {
+        return lebendig;
+    }
+
+    /**
+     * Alle eingetragenen Zeilen in aufsteigender Reihenfolge einschließlich evtl. gelöschter Zeilen.
+     *
+     * @return die Zeilennummern.
+     */
+    IntStream zeilen() {
+        final var b = block;
+        return Arrays.stream(b.zeilen, 0, b.anzahl);
+    }
+
+    private static final class Block {
+        private final int[] zeilen;
+        private volatile int anzahl;
+
+        Block(final int[] zeilen, final int anzahl) {
+            this.zeilen = zeilen;
+            this.anzahl = anzahl;
+        }
+    }
+}
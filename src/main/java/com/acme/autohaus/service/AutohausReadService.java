@@ -18,12 +18,16 @@
 package com.acme.autohaus.service;
 
 import com.acme.autohaus.entity.Autohaus;
+import com.acme.autohaus.repository.AutoStatistik;
 import com.acme.autohaus.repository.AutohausRepository;
+import com.acme.autohaus.repository.AutohausSeite;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 /// Anwendungslogik für Autohäuser
@@ -34,54 +38,137 @@ public class AutohausReadService {
 
     private final AutohausRepository autohausRepository;
 
+    private final AutohausSuchCache suchCache;
+
     /**
      * Erstellt eine Instanz der AutohausReadService-Klasse.
      *
      * @param autohausRepository das Repository für Autohaus-Operationen
+     * @param suchCache der Cache für Suchergebnisse
      */
-    public AutohausReadService(final AutohausRepository autohausRepository) {
+    AutohausReadService(final AutohausRepository autohausRepository, final AutohausSuchCache suchCache) {
         this.autohausRepository = autohausRepository;
+        this.suchCache = suchCache;
     }
 
     /**
      * Gibt alle Autohaus-Objekte in der Datenbank zurück.
+     * Gleiche Suchen werden bis zum nächsten Schreibzugriff aus dem {@link AutohausSuchCache} beantwortet.
      *
      * @param suchkriterien Query-Parameter als Map.
      * @return eine Liste aller vorhandenen Autohäuser
      * @throws NotFoundException wenn keine Autohäuser in der Datenbank vorhanden sind
      */
-    @SuppressWarnings({"ReturnCount", "NestedIfDepth", "checkstyle:CyclomaticComplexity"})
     public @NonNull List<Autohaus> get(@NonNull final Map<String, List<String>> suchkriterien) {
         LOGGER.debug("suche: suchkriterien = {}", suchkriterien);
 
+        final var autohaeuser = suchCache.suchen(suchkriterien, this::suchen);
+        if (autohaeuser.isEmpty() && !suchkriterien.isEmpty()) {
+            throw new NotFoundException(suchkriterien);
+        }
+        LOGGER.debug("suche: anzahl={}", autohaeuser.size());
+        return autohaeuser;
+    }
+
+    // Suche im Repository, ggf. leer
+    private List<Autohaus> suchen(final Map<String, List<String>> suchkriterien) {
         if (suchkriterien.isEmpty()) {
             return autohausRepository.getAll();
         }
-
-        if (suchkriterien.size() == 1) {
-            final var name = suchkriterien.get("name");
-            if (name != null && name.size() == 1) {
-                final var autohaeuser = autohausRepository.getByName(name.getFirst());
-                if (autohaeuser.isEmpty()) {
-                    throw new NotFoundException(suchkriterien);
-                }
-                LOGGER.debug("suche (name): {}", name);
-                return autohaeuser;
-            }
-            final var autohaeuser = autohausRepository.get(suchkriterien);
-            if (autohaeuser.isEmpty()) {
-                throw new NotFoundException(suchkriterien);
-            }
-            LOGGER.debug("suche: {}", autohaeuser);
-            return autohaeuser;
+        final var name = suchkriterien.get("name");
+        if (suchkriterien.size() == 1 && name != null && name.size() == 1) {
+            LOGGER.debug("suchen (name): {}", name);
+            return autohausRepository.getByName(name.getFirst());
         }
+        return autohausRepository.get(suchkriterien);
+    }
 
-        final List<Autohaus> autohaeuser = autohausRepository.get(suchkriterien);
-        if (autohaeuser.isEmpty()) {
-            throw new NotFoundException("Keine Autohäuser in der Datenbank gefunden.");
+    /**
+     * Durchläuft die Autohäuser, die den Suchkriterien entsprechen, ohne sie vorher in einer Liste zu sammeln.
+     * Im Gegensatz zu [#get(Map)] ist ein leeres Ergebnis kein Fehler, weil der Status einer gestreamten Response
+     * feststeht, bevor das erste Autohaus gelesen wird.
+     *
+     * @param suchkriterien Query-Parameter als Map.
+     * @return Stream der Autohäuser, der geschlossen werden muss.
+     */
+    public @NonNull Stream<Autohaus> stream(@NonNull final Map<String, List<String>> suchkriterien) {
+        LOGGER.debug("stream: suchkriterien = {}", suchkriterien);
+        return autohausRepository.stream(suchkriterien);
+    }
+
+    /**
+     * Liefert eine Seite der Autohäuser, die den Suchkriterien entsprechen.
+     *
+     * @param suchkriterien Query-Parameter als Map ohne {@code limit} und {@code cursor}.
+     * @param cursor der Cursor der vorherigen Seite oder {@code null} für die erste Seite.
+     * @param limit die maximale Anzahl der Autohäuser auf der Seite.
+     * @return die Seite mit dem Cursor für die nächste Seite.
+     * @throws InvalidCursorException wenn der Cursor ungültig ist
+     * @throws NotFoundException wenn die erste Seite bei vorhandenen Suchkriterien leer ist
+     */
+    public @NonNull AutohausSeite getSeite(
+        @NonNull final Map<String, List<String>> suchkriterien,
+        @Nullable final String cursor,
+        final int limit
+    ) {
+        LOGGER.debug("getSeite: suchkriterien = {}, cursor = {}, limit = {}", suchkriterien, cursor, limit);
+        final var seite = autohausRepository.getSeite(suchkriterien, cursor, limit)
+            .orElseThrow(() -> new InvalidCursorException(cursor));
+        if (cursor == null && !suchkriterien.isEmpty() && seite.autohaeuser().isEmpty()) {
+            throw new NotFoundException(suchkriterien);
         }
+        LOGGER.debug("getSeite: {}", seite);
+        return seite;
+    }
 
-        return autohaeuser;
+    /**
+     * Zählt die Autos je Marke, Stadt und Postleitzahl als Facetten für eine Suchoberfläche.
+     *
+     * @param filter Query-Parameter mit den gewählten Werten je Facette.
+     * @return die Anzahl der Autos je Wert und Facette.
+     * @throws NotFoundException bei unbekannten Filtern
+     */
+    public @NonNull Map<String, Map<String, Integer>> facetten(@NonNull final Map<String, List<String>> filter) {
+        LOGGER.debug("facetten: filter = {}", filter);
+        final var facetten = autohausRepository.facetten(filter)
+            .orElseThrow(() -> new NotFoundException(filter));
+        LOGGER.debug("facetten: {}", facetten);
+        return facetten;
+    }
+
+    /**
+     * Kennzahlen über alle Autos.
+     *
+     * @return Anzahl, Preise sowie Anzahl je Marke und je Baujahr.
+     */
+    public @NonNull AutoStatistik statistik() {
+        final var statistik = autohausRepository.statistik();
+        LOGGER.debug("statistik: {}", statistik);
+        return statistik;
+    }
+
+    /**
+     * Kennzahlen über die Autos eines Autohauses.
+     *
+     * @param id die ID des Autohauses
+     * @return Anzahl, Preise sowie Anzahl je Marke und je Baujahr.
+     * @throws NotFoundException wenn kein Autohaus mit dieser ID gefunden wird
+     */
+    public @NonNull AutoStatistik statistik(final String id) {
+        LOGGER.debug("statistik: id = {}", id);
+        final var statistik = autohausRepository.statistik(id)
+            .orElseThrow(() -> new NotFoundException(id));
+        LOGGER.debug("statistik: {}", statistik);
+        return statistik;
+    }
+
+    /**
+     * Version des gesamten Bestands, die sich bei jedem Schreibzugriff ändert.
+     *
+     * @return die Version, die nur auf Gleichheit vergleichbar ist.
+     */
+    public @NonNull String getVersion() {
+        return autohausRepository.getVersion();
     }
 
     /**
@@ -95,7 +182,7 @@ public class AutohausReadService {
         LOGGER.debug("Starte Suche nach Autohaus mit id: {}", id);
 
         final Autohaus autohaus = autohausRepository.getByID(id)
-            .orElseThrow(() -> new NotFoundException("Kein Autohaus für die angegebene ID gefunden."));
+            .orElseThrow(() -> new NotFoundException(id));
 
         LOGGER.debug("Suche nach Autohaus mit id beendet");
         return autohaus;
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.service;
+
+import com.acme.autohaus.entity.Autohaus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.springframework.stereotype.Component;
+
+/// Read-Through-Cache für die Ergebnisse von [AutohausReadService#get(Map)], z.B. für die immer gleichen Suchen
+/// einer Storefront.
+///
+/// Der Schlüssel sind die normalisierten Suchkriterien, d.h. unabhängig von der Reihenfolge der Query-Parameter und
+/// ihrer Werte. Caffeine verdrängt Einträge nach W-TinyLFU, sobald [SuchCacheProperties#maxEintraege()] erreicht
+/// ist, und verwirft sie nach [SuchCacheProperties#ttl()]. Treffer, Fehlschläge und Verdrängungen werden als
+/// Metriken `cache.*` mit dem Tag `cache=autohaus.suche` über Actuator veröffentlicht.
+///
+/// Jeder Schreibzugriff kann das Ergebnis jeder Suche ändern und ruft deshalb [#invalidieren()] auf. Damit eine
+/// Suche, die vor dem Schreibzugriff begonnen hat, ihr veraltetes Ergebnis nicht danach einträgt, wird jeder Eintrag
+/// mit der Schreib-Epoche vom Beginn der Suche versehen und nur verwendet, solange die Epoche aktuell ist.
+@Component
+final class AutohausSuchCache {
+    private static final String NAME = "autohaus.suche";
+
+    // Suchkriterien, von denen die Suche nur den ersten Wert auswertet
+    private static final Set<String> GRENZEN = Set.of("baujahrMin", "baujahrMax", "preisMin", "preisMax");
+
+    private final boolean enabled;
+
+    private final Cache<Map<String, List<String>>, Eintrag> cache;
+
+    // wird bei jedem Schreibzugriff erhoeht
+    private final AtomicLong epoche = new AtomicLong();
+
+    /// Konstruktor mit _package private_ für _Spring_.
+    ///
+    /// @param suchCacheProperties Konfiguration mit Größe und TTL.
+    /// @param meterRegistry Registry für die Metriken des Caches.
+    AutohausSuchCache(final SuchCacheProperties suchCacheProperties, final MeterRegistry meterRegistry) {
+        enabled = suchCacheProperties.enabled();
+        cache = Caffeine.newBuilder()
+            .maximumSize(suchCacheProperties.maxEintraege())
+            .expireAfterWrite(suchCacheProperties.ttl())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+
+    private record Eintrag(long epoche, List<Autohaus> autohaeuser) {
+    }
+
+    /// Liefert das zwischengespeicherte Ergebnis einer Suche oder führt sie aus und speichert das Ergebnis.
+    ///
+    /// @param suchkriterien Die Suchkriterien.
+    /// @param suche Die Suche im Repository, die auch ein leeres Ergebnis liefern darf.
+    /// @return Das Ergebnis der Suche, das nicht verändert werden darf.
+    List<Autohaus> suchen(
+        final Map<String, List<String>> suchkriterien,
+        final Function<Map<String, List<String>>, List<Autohaus>> suche
+    ) {
+        if (!enabled) {
+            return suche.apply(suchkriterien);
+        }
+        // die Epoche vor der Suche lesen, damit ein gleichzeitiger Schreibzugriff den Eintrag sicher ungueltig macht
+        final var aktuelleEpoche = epoche.get();
+        final var schluessel = normalisieren(suchkriterien);
+        final var eintrag = cache.get(schluessel, _ -> new Eintrag(aktuelleEpoche, suche.apply(suchkriterien)));
+        if (eintrag.epoche() >= aktuelleEpoche) {
+            return eintrag.autohaeuser();
+        }
+        final var neu = new Eintrag(aktuelleEpoche, suche.apply(suchkriterien));
+        cache.put(schluessel, neu);
+        return neu.autohaeuser();
+    }
+
+    /// Verwirft alle Suchergebnisse nach einem Schreibzugriff.
+    void invalidieren() {
+        if (enabled) {
+            epoche.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+
+    // Suchkriterien und Werte sortiert, so dass ?marke=VW&name=A und ?name=A&marke=VW denselben Eintrag verwenden.
+    // Von Unter- und Obergrenzen zaehlt nur der erste Wert, deshalb bleibt ihre Reihenfolge erhalten.
+    private static Map<String, List<String>> normalisieren(final Map<String, List<String>> suchkriterien) {
+        final var normalisiert = new TreeMap<String, List<String>>();
+        suchkriterien.forEach((name, werte) -> normalisiert.put(
+            name,
+            GRENZEN.contains(name) ? List.copyOf(werte) : werte.stream().sorted().distinct().toList()
+        ));
+        return normalisiert;
+    }
+}
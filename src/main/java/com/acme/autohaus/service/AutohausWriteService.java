@@ -20,10 +20,14 @@ package com.acme.autohaus.service;
 import com.acme.autohaus.entity.Autohaus;
 import com.acme.autohaus.repository.AutohausRepository;
 import jakarta.validation.Valid;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.UnaryOperator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 /**
  * Service-Klasse für Schreiboperationen auf Autohaus-Daten.
@@ -31,16 +35,21 @@ import org.springframework.stereotype.Service;
 @Service
 public class AutohausWriteService {
     private static final Logger LOGGER = LoggerFactory.getLogger(AutohausWriteService.class);
+    private static final int MAX_VERSUCHE = 3;
 
     private final AutohausRepository autohausRepository;
 
+    private final AutohausSuchCache suchCache;
+
     /**
      * Konstruktor zur Initialisierung des AutohausWriteService mit dem AutohausRepository.
      *
      * @param autohausRepository das Repository für Autohaus-Daten.
+     * @param suchCache der Cache für Suchergebnisse, der nach jedem Schreibzugriff verworfen wird.
      */
-    public AutohausWriteService(final AutohausRepository autohausRepository) {
+    AutohausWriteService(final AutohausRepository autohausRepository, final AutohausSuchCache suchCache) {
         this.autohausRepository = autohausRepository;
+        this.suchCache = suchCache;
     }
 
     /**
@@ -53,45 +62,112 @@ public class AutohausWriteService {
     public Autohaus create(@Valid final Autohaus autohaus) {
         LOGGER.debug("create: {}", autohaus);
 
-        // Überprüfen, ob die E-Mail-Adresse bereits existiert
-        if (autohausRepository.isEmailExisting(autohaus.getEmail())) {
-            throw new EmailExistsException(autohaus.getEmail());
-        }
-
-        // Neues Autohaus-Objekt erstellen und speichern
-        final var autohausDB = autohausRepository.create(autohaus);
+        // Neues Autohaus-Objekt erstellen und speichern, die E-Mail-Adresse wird dabei atomar reserviert
+        final var autohausDB = autohausRepository.create(autohaus)
+            .orElseThrow(() -> new EmailExistsException(autohaus.getEmail()));
+        suchCache.invalidieren();
         LOGGER.debug("create: {}", autohausDB);
         return autohausDB;
     }
 
+    /**
+     * Erstellt mehrere neue, bereits validierte Autohäuser in einem gemeinsamen Commit.
+     *
+     * @param autohaeuser die zu erstellenden Autohaus-Objekte.
+     * @return je Autohaus in derselben Reihenfolge ein Optional mit dem erstellten Autohaus oder ein leeres
+     * Optional, falls die E-Mail-Adresse bereits existiert oder weiter vorne in der Liste vorkommt.
+     */
+    public List<Optional<Autohaus>> createBatch(final List<Autohaus> autohaeuser) {
+        LOGGER.debug("createBatch: anzahl={}", autohaeuser.size());
+        final var ergebnisse = autohausRepository.createBatch(autohaeuser);
+        if (ergebnisse.stream().anyMatch(Optional::isPresent)) {
+            suchCache.invalidieren();
+        }
+        LOGGER.debug("createBatch: angelegt={}", ergebnisse.stream().filter(Optional::isPresent).count());
+        return ergebnisse;
+    }
+
     /**
      * Aktualisiert ein vorhandenes Autohaus-Objekt anhand der ID.
      *
      * @param autohaus das zu aktualisierende Autohaus-Objekt.
      * @param id       die UUID des zu aktualisierenden Autohauses.
-     * @throws NotFoundException    wenn kein Autohaus mit der angegebenen ID gefunden wird.
-     * @throws EmailExistsException wenn die neue E-Mail-Adresse bereits existiert.
+     * @param version  die erwartete Version des gespeicherten Autohauses oder {@code null} für keinen Vergleich.
+     * @return das aktualisierte Autohaus-Objekt mit der neuen Version.
+     * @throws NotFoundException         wenn kein Autohaus mit der angegebenen ID gefunden wird.
+     * @throws EmailExistsException      wenn die neue E-Mail-Adresse bereits existiert.
+     * @throws VersionOutdatedException  wenn das Autohaus zwischenzeitlich geändert wurde.
      */
-    public void update(@Valid final Autohaus autohaus, final UUID id) {
+    public Autohaus update(@Valid final Autohaus autohaus, final UUID id, @Nullable final Long version) {
         LOGGER.debug("update: {}", autohaus);
-        LOGGER.debug("update: id={}", id);
+        LOGGER.debug("update: id={}, version={}", id, version);
 
-        // E-Mail des Autohaus-Objekts abrufen
-        final var email = autohaus.getEmail();
-
-        // Autohaus aus der Datenbank anhand der ID abrufen
-        final var autohausDb = autohausRepository
-            .getByID(id.toString())
-            .orElseThrow(() -> new NotFoundException(id.toString()));
-
-        // Überprüfen, ob die neue E-Mail-Adresse bereits existiert
-        if (!Objects.equals(email, autohausDb.getEmail()) && autohausRepository.isEmailExisting(email)) {
-            LOGGER.debug("update: email {} existiert", email);
-            throw new EmailExistsException(email);
+        // UUID setzen und Autohaus-Objekt aktualisieren; Existenz, Version und eine geänderte E-Mail-Adresse
+        // werden dabei atomar geprüft
+        autohaus.setUUId(id);
+        switch (autohausRepository.update(autohaus, version)) {
+            case NICHT_VORHANDEN -> throw new NotFoundException(id.toString());
+            case EMAIL_VORHANDEN -> {
+                LOGGER.debug("update: email {} existiert", autohaus.getEmail());
+                throw new EmailExistsException(autohaus.getEmail());
+            }
+            case VERSION_VERALTET -> throw new VersionOutdatedException(Objects.requireNonNull(version));
+            case AKTUALISIERT -> {
+                suchCache.invalidieren();
+                LOGGER.debug("update: version={}", autohaus.getVersion());
+            }
         }
+        return autohaus;
+    }
 
-        // UUID setzen und Autohaus-Objekt aktualisieren
-        autohaus.setUUId(id);
-        autohausRepository.update(autohaus);
+    /**
+     * Ändert einzelne Properties eines vorhandenen Autohauses, z.B. für einen PATCH-Request.
+     * <p>
+     * Die Änderung erhält die gespeicherte Version und liefert eine neue Version, die unveränderte Properties wie
+     * die Autos mit der gespeicherten Version teilen, aber nicht verändern darf. Ohne erwartete Version wird die
+     * Änderung nach einer konkurrierenden Aktualisierung auf die neuere Version erneut angewandt, insgesamt
+     * höchstens {@value #MAX_VERSUCHE} Mal. Der Client hat dann keine Version vorausgesetzt, so dass danach ein
+     * Konflikt statt einer veralteten Version gemeldet wird.
+     * </p>
+     *
+     * @param id        die UUID des zu ändernden Autohauses.
+     * @param aenderung die Änderung, die aus der gespeicherten Version eine neue Version erstellt.
+     * @param version   die erwartete Version des gespeicherten Autohauses oder {@code null} für keinen Vergleich.
+     * @return das geänderte Autohaus-Objekt mit der neuen Version.
+     * @throws NotFoundException         wenn kein Autohaus mit der angegebenen ID gefunden wird.
+     * @throws EmailExistsException      wenn die neue E-Mail-Adresse bereits existiert.
+     * @throws VersionOutdatedException  wenn das Autohaus seit der erwarteten Version geändert wurde.
+     * @throws ConcurrentUpdateException wenn das Autohaus ohne erwartete Version bei jedem Versuch
+     *                                   zwischenzeitlich geändert wurde.
+     */
+    public Autohaus patch(final UUID id, final UnaryOperator<Autohaus> aenderung, @Nullable final Long version) {
+        LOGGER.debug("patch: id={}, version={}", id, version);
+        for (var versuch = 1; ; versuch++) {
+            final var autohausDb = autohausRepository.getByID(id)
+                .orElseThrow(() -> new NotFoundException(id.toString()));
+            if (version != null && version != autohausDb.getVersion()) {
+                throw new VersionOutdatedException(version);
+            }
+            final var autohaus = aenderung.apply(autohausDb);
+            autohaus.setUUId(id);
+            switch (autohausRepository.update(autohaus, autohausDb.getVersion())) {
+                case AKTUALISIERT -> {
+                    suchCache.invalidieren();
+                    LOGGER.debug("patch: version={}", autohaus.getVersion());
+                    return autohaus;
+                }
+                case NICHT_VORHANDEN -> throw new NotFoundException(id.toString());
+                case EMAIL_VORHANDEN -> throw new EmailExistsException(autohaus.getEmail());
+                case VERSION_VERALTET -> {
+                    if (version != null) {
+                        throw new VersionOutdatedException(version);
+                    }
+                    if (versuch == MAX_VERSUCHE) {
+                        throw new ConcurrentUpdateException(id, versuch);
+                    }
+                    LOGGER.debug("patch: konkurrierende Aktualisierung, Versuch {}", versuch);
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.service;
+
+import java.util.UUID;
+
+/// Exception, falls eine Änderung ohne erwartete Version wegen konkurrierender Aktualisierungen nicht angewandt
+/// werden konnte.
+public class ConcurrentUpdateException extends RuntimeException {
+    /// Konstruktor, falls jeder Versuch einer Änderung durch eine konkurrierende Aktualisierung überholt wurde.
+    ///
+    /// @param id Die ID des Autohauses.
+    /// @param versuche Die Anzahl der Versuche.
+    ConcurrentUpdateException(final UUID id, final int versuche) {
+        super("Das Autohaus " + id + " wurde bei " + versuche + " Versuchen jeweils zwischenzeitlich geändert");
+    }
+}
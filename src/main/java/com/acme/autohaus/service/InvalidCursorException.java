@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.service;
+
+/// Exception, falls ein Cursor für das Blättern ungültig ist oder auf kein vorhandenes Autohaus mehr verweist.
+public class InvalidCursorException extends RuntimeException {
+    /// Ungültiger Cursor.
+    private final String cursor;
+
+    /// Konstruktor, falls mit einem ungültigen Cursor geblättert werden soll.
+    ///
+    /// @param cursor Der ungültige Cursor.
+    InvalidCursorException(@SuppressWarnings("ParameterHidesMemberVariable") final String cursor) {
+        super("Der Cursor " + cursor + " ist ungueltig");
+        this.cursor = cursor;
+    }
+
+    /// Ungültigen Cursor ermitteln.
+    ///
+    /// @return Der ungültige Cursor.
+    public String getCursor() {
+        return cursor;
+    }
+}
@@ -21,6 +21,9 @@ import java.util.List;
 import java.util.Map;
 
 /// [RuntimeException], falls kein autohaus gefunden wurde.
+///
+/// Die Exception wird ohne Stacktrace erzeugt: sie beschreibt ein erwartetes Ergebnis, das mit Statuscode `404`
+/// beantwortet wird, und tritt z.B. bei veralteten Links oder Scrapern sehr häufig auf.
 public final class NotFoundException extends RuntimeException {
     /// Fehlerhafte ID
     private final String id;
@@ -30,7 +33,7 @@ public final class NotFoundException extends RuntimeException {
 
     /// Standardkonstruktor für den [AutohausReadService], wenn alle autohausn gesucht werden, aber keine existieren.
     NotFoundException() {
-        super("Keine Autohaeuser gefunden in der Datenbank");
+        super("Keine Autohaeuser gefunden in der Datenbank", null, false, false);
         id = null;
         suchkriterien = null;
     }
@@ -39,7 +42,7 @@ public final class NotFoundException extends RuntimeException {
     ///
     /// @param id Die fehlerhafte ID
     NotFoundException(final String id) {
-        super("Kein Autohaus mit der ID " + id + " gefunden.");
+        super("Kein Autohaus mit der ID " + id + " gefunden.", null, false, false);
         this.id = id;
         suchkriterien = null;
     }
@@ -48,7 +51,7 @@ public final class NotFoundException extends RuntimeException {
     ///
     /// @param suchkriterien Die fehlerhaften Suchkriterien
     NotFoundException(final Map<String, List<String>> suchkriterien) {
-        super("Keine Autohaeuser gefunden.");
+        super("Keine Autohaeuser gefunden.", null, false, false);
         id = null;
         this.suchkriterien = suchkriterien;
     }
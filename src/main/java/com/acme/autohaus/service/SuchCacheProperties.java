@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/// Konfiguration des Caches für Suchergebnisse aus `app.such-cache.*`.
+///
+/// @param enabled Flag, ob Suchergebnisse zwischengespeichert werden.
+/// @param maxEintraege maximale Anzahl zwischengespeicherter Suchen.
+/// @param ttl maximale Dauer, die ein Suchergebnis nach dem Eintragen verwendet wird.
+@ConfigurationProperties(prefix = "app.such-cache")
+public record SuchCacheProperties(
+    @DefaultValue("true")
+    boolean enabled,
+
+    @DefaultValue("10000")
+    long maxEintraege,
+
+    @DefaultValue("5m")
+    Duration ttl
+) {
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.service;
+
+/// Exception, falls die Version im Header `If-Match` nicht mehr aktuell ist.
+public class VersionOutdatedException extends RuntimeException {
+    /// Veraltete Version.
+    private final long version;
+
+    /// Konstruktor, falls ein Autohaus mit einer veralteten Version aktualisiert werden soll.
+    ///
+    /// @param version Die veraltete Version.
+    VersionOutdatedException(@SuppressWarnings("ParameterHidesMemberVariable") final long version) {
+        super("Die Version " + version + " ist nicht aktuell");
+        this.version = version;
+    }
+
+    /// Veraltete Version ermitteln.
+    ///
+    /// @return Die veraltete Version.
+    public long getVersion() {
+        return version;
+    }
+}
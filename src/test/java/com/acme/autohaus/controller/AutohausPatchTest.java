@@ -0,0 +1,252 @@
+/*
+ * This file is part of JürgenZimmermanns Modul Softwarearchitektur.
+ *
+ * Autohaus is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Autohaus is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Autohaus.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.controller;
+
+import com.acme.autohaus.entity.Adresse;
+import com.acme.autohaus.entity.Auto;
+import com.acme.autohaus.entity.Autohaus;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+@Tag("unit")
+@DisplayName("PATCH als JSON Merge Patch und JSON Patch")
+class AutohausPatchTest {
+    private AutohausPatch autohausPatch;
+    private Autohaus autohaus;
+
+    @BeforeAll
+    void init() {
+        final var validator = Validation.buildDefaultValidatorFactory().getValidator();
+        autohausPatch = new AutohausPatch(Jackson2ObjectMapperBuilder.json().build(), validator);
+        final var auto = new Auto(UUID.randomUUID(), "VW", "Golf", 2020, "Max", new BigDecimal("19999.90"));
+        autohaus = new Autohaus(
+            "Autohaus Nord",
+            "0721 123456",
+            UUID.randomUUID(),
+            "nord@acme.de",
+            List.of(auto),
+            new Adresse("Moltkestraße", "30", "76133", "Karlsruhe")
+        );
+    }
+
+    private JsonNode json(final String json) {
+        return autohausPatch.lesen(json.getBytes(UTF_8));
+    }
+
+    private static void assertStatus(final ThrowingCallable aufruf, final HttpStatus status) {
+        assertThatThrownBy(aufruf)
+            .isInstanceOfSatisfying(InvalidPatchException.class, ex -> assertThat(ex.getStatus()).isEqualTo(status));
+    }
+
+    @Nested
+    @DisplayName("JSON Merge Patch gemäß RFC 7386")
+    class MergePatch {
+        @Test
+        @DisplayName("Eine Property ersetzen und die übrigen unverändert übernehmen")
+        void ersetzen() {
+            // when
+            final var neu = autohausPatch.mergePatch(json("""
+                {"telefonnummer": "0721 654321"}
+                """)).apply(autohaus);
+
+            // then
+            assertThat(neu.getTelefonnummer()).isEqualTo("0721 654321");
+            assertThat(neu.getName()).isEqualTo(autohaus.getName());
+            assertThat(neu.getUUId()).isEqualTo(autohaus.getUUId());
+            assertThat(neu.getAutos()).isSameAs(autohaus.getAutos());
+            assertThat(neu.getAdresse()).isSameAs(autohaus.getAdresse());
+            assertThat(autohaus.getTelefonnummer()).isEqualTo("0721 123456");
+        }
+
+        @Test
+        @DisplayName("Ein Objekt wird zusammengeführt, null entfernt eine Property")
+        void zusammenfuehren() {
+            // when
+            final var neu = autohausPatch.mergePatch(json("""
+                {"adresse": {"plz": "76131", "hausnummer": null}}
+                """)).apply(autohaus);
+
+            // then
+            final var adresse = neu.getAdresse();
+            assertThat(adresse.getPlz()).isEqualTo("76131");
+            assertThat(adresse.getHausnummer()).isNull();
+            assertThat(adresse.getStrasse()).isEqualTo("Moltkestraße");
+            assertThat(adresse.getStadt()).isEqualTo("Karlsruhe");
+        }
+
+        @Test
+        @DisplayName("Ein Array wird vollständig ersetzt")
+        void arrayErsetzen() {
+            // when
+            final var neu = autohausPatch.mergePatch(json("""
+                {"autos": [
+                    {"marke": "BMW", "modell": "i3", "baujahr": 2022, "besitzer": "Eva", "preis": 0.10}
+                ]}
+                """)).apply(autohaus);
+
+            // then
+            assertThat(neu.getAutos()).extracting(Auto::getMarke).containsExactly("BMW");
+            assertThat(neu.getAutos().getFirst().getPreis()).isEqualTo(new BigDecimal("0.10"));
+        }
+
+        @Test
+        @DisplayName("Unbekannte Property")
+        void unbekannteProperty() {
+            assertStatus(() -> autohausPatch.mergePatch(json("""
+                {"version": 5}
+                """)), BAD_REQUEST);
+        }
+
+        @Test
+        @DisplayName("Ein Merge Patch muss ein Objekt sein")
+        void keinObjekt() {
+            assertStatus(() -> autohausPatch.mergePatch(json("[]")), BAD_REQUEST);
+        }
+
+        @Test
+        @DisplayName("Ungültige E-Mail-Adresse")
+        void ungueltigeEmail() {
+            final var aenderung = autohausPatch.mergePatch(json("""
+                {"email": "keine-email"}
+                """));
+            assertThatThrownBy(() -> aenderung.apply(autohaus)).isInstanceOf(ConstraintViolationException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("JSON Patch gemäß RFC 6902")
+    class JsonPatch {
+        @Test
+        @DisplayName("Operationen add, replace, remove, copy und move nacheinander anwenden")
+        void operationen() {
+            // when
+            final var neu = autohausPatch.jsonPatch(json("""
+                [
+                    {"op": "replace", "path": "/telefonnummer", "value": "0721 654321"},
+                    {"op": "add", "path": "/autos/-", "value": {"marke": "BMW", "modell": "i3", "baujahr": 2022}},
+                    {"op": "add", "path": "/autos/0", "value": {"marke": "Audi", "modell": "A4", "baujahr": 2018}},
+                    {"op": "remove", "path": "/autos/1"},
+                    {"op": "copy", "from": "/adresse/stadt", "path": "/adresse/strasse"},
+                    {"op": "move", "from": "/adresse/plz", "path": "/adresse/hausnummer"}
+                ]
+                """)).apply(autohaus);
+
+            // then
+            assertThat(neu.getTelefonnummer()).isEqualTo("0721 654321");
+            assertThat(neu.getAutos()).extracting(Auto::getMarke).containsExactly("Audi", "BMW");
+            final var adresse = neu.getAdresse();
+            assertThat(adresse.getStrasse()).isEqualTo("Karlsruhe");
+            assertThat(adresse.getHausnummer()).isEqualTo("76133");
+            assertThat(adresse.getPlz()).isNull();
+            assertThat(autohaus.getAutos()).extracting(Auto::getMarke).containsExactly("VW");
+        }
+
+        @Test
+        @DisplayName("test vergleicht Zahlen nach ihrem Wert")
+        void testNumerisch() {
+            // when
+            final var neu = autohausPatch.jsonPatch(json("""
+                [
+                    {"op": "test", "path": "/autos/0/preis", "value": 19999.9},
+                    {"op": "test", "path": "/autos/0/baujahr", "value": 2.02E3},
+                    {"op": "test", "path": "/adresse", "value": {
+                        "strasse": "Moltkestraße", "hausnummer": "30", "plz": "76133", "stadt": "Karlsruhe"
+                    }},
+                    {"op": "replace", "path": "/name", "value": "Autohaus Ost"}
+                ]
+                """)).apply(autohaus);
+
+            // then
+            assertThat(neu.getName()).isEqualTo("Autohaus Ost");
+        }
+
+        @Test
+        @DisplayName("Eine fehlgeschlagene test-Operation verwirft den gesamten Patch")
+        void testFehlgeschlagen() {
+            final var aenderung = autohausPatch.jsonPatch(json("""
+                [
+                    {"op": "replace", "path": "/name", "value": "Autohaus Ost"},
+                    {"op": "test", "path": "/autos/0/preis", "value": 19999.91}
+                ]
+                """));
+            assertStatus(() -> aenderung.apply(autohaus), CONFLICT);
+            assertThat(autohaus.getName()).isEqualTo("Autohaus Nord");
+        }
+
+        @Test
+        @DisplayName("Preise werden ohne Rundung über double übernommen")
+        void preisExakt() {
+            // when
+            final var neu = autohausPatch.jsonPatch(json("""
+                [{"op": "replace", "path": "/autos/0/preis", "value": 92233720368547758.07}]
+                """)).apply(autohaus);
+
+            // then
+            assertThat(neu.getAutos().getFirst().getPreis()).isEqualTo(new BigDecimal(Auto.MAX_PREIS));
+        }
+
+        @Test
+        @DisplayName("Ungültige Operationen und Pfade")
+        void ungueltig() {
+            List.of(
+                "{}",
+                """
+                [{"op": "merge", "path": "/name", "value": "x"}]""",
+                """
+                [{"op": "replace", "path": "", "value": {}}]""",
+                """
+                [{"op": "replace", "path": "/version", "value": 1}]""",
+                """
+                [{"op": "add", "path": "/name"}]""",
+                """
+                [{"op": "move", "path": "/name"}]"""
+            ).forEach(patch -> assertStatus(() -> autohausPatch.jsonPatch(json(patch)), BAD_REQUEST));
+        }
+
+        @Test
+        @DisplayName("Ein Index außerhalb des Arrays")
+        void indexAusserhalb() {
+            final var aenderung = autohausPatch.jsonPatch(json("""
+                [{"op": "remove", "path": "/autos/1"}]
+                """));
+            assertStatus(() -> aenderung.apply(autohaus), BAD_REQUEST);
+        }
+    }
+
+    @Test
+    @DisplayName("Ein Request-Body ohne gültiges JSON")
+    void keinJson() {
+        assertStatus(() -> json("{\"name\": "), BAD_REQUEST);
+    }
+}
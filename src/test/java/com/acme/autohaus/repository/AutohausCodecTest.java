@@ -0,0 +1,115 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.repository;
+
+import com.acme.autohaus.entity.Adresse;
+import com.acme.autohaus.entity.Auto;
+import com.acme.autohaus.entity.Autohaus;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("unit")
+@DisplayName("Binäre Kodierung eines Autohauses")
+class AutohausCodecTest {
+    @Test
+    @DisplayName("Autohaus mit Adresse, Autos und Version kodieren und dekodieren")
+    void encodeDecode() {
+        // given
+        final var autohaus = autohaus();
+
+        // when
+        final var dekodiert = AutohausCodec.decode(AutohausCodec.encode(autohaus));
+
+        // then
+        assertThat(dekodiert).usingRecursiveComparison().isEqualTo(autohaus);
+        assertThat(dekodiert.getAutos().getFirst().getPreis().scale()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("null-Werte, fehlende Adresse und Auto ohne Preis bleiben erhalten")
+    void encodeDecodeNull() {
+        // given
+        final var auto = new Auto(UUID.randomUUID(), "BMW", "i3", 2021, null, null);
+        final var autohaus = new Autohaus("Autohaus Süd", null, UUID.randomUUID(), null, List.of(auto), null);
+
+        // when
+        final var dekodiert = AutohausCodec.decode(AutohausCodec.encode(autohaus));
+
+        // then
+        assertThat(dekodiert).usingRecursiveComparison().isEqualTo(autohaus);
+    }
+
+    @Test
+    @DisplayName("Kodierung ohne Version hat die Version 0")
+    void decodeOhneVersion() {
+        // given
+        final var autohaus = autohaus();
+        final var kodiert = AutohausCodec.encode(autohaus);
+        final var ohneVersion = Arrays.copyOf(kodiert, kodiert.length - Long.BYTES);
+
+        // when
+        final var dekodiert = AutohausCodec.decode(ohneVersion);
+
+        // then
+        assertThat(dekodiert.getVersion()).isZero();
+        assertThat(dekodiert).usingRecursiveComparison().ignoringFields("version").isEqualTo(autohaus);
+    }
+
+    @Test
+    @DisplayName("Nur die Properties ohne Adresse und Autos kodieren und dekodieren")
+    void encodeDecodeProperties() {
+        // given
+        final var autohaus = autohaus();
+
+        // when
+        final var kodiert = AutohausCodec.encodeProperties(autohaus);
+        final var dekodiert = AutohausCodec.decodeProperties(kodiert);
+
+        // then
+        assertThat(kodiert.length).isLessThan(AutohausCodec.encode(autohaus).length);
+        assertThat(dekodiert)
+            .usingRecursiveComparison()
+            .ignoringFields("autos", "adresse")
+            .isEqualTo(autohaus);
+        assertThat(dekodiert.getAutos()).isEmpty();
+        assertThat(dekodiert.getAdresse()).isNull();
+    }
+
+    static Autohaus autohaus() {
+        final var autos = List.of(
+            new Auto(UUID.randomUUID(), "VW", "Golf", 2020, "Max Mustermann", new BigDecimal("19999.90")),
+            new Auto(UUID.randomUUID(), "Audi", "A4", 2018, "Erika Mustermann", new BigDecimal(Auto.MAX_PREIS))
+        );
+        final var adresse = new Adresse("Moltkestraße", "30", "76133", "Karlsruhe");
+        final var autohaus = new Autohaus(
+            "Autohaus Nord",
+            "0721 123456",
+            UUID.randomUUID(),
+            "nord@acme.de",
+            autos,
+            adresse
+        );
+        autohaus.setVersion(7L);
+        return autohaus;
+    }
+}
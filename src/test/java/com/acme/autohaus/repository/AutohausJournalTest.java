@@ -0,0 +1,179 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.repository;
+
+import com.acme.autohaus.entity.Autohaus;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import static com.acme.autohaus.repository.AutohausCodecTest.autohaus;
+import static com.acme.autohaus.repository.AutohausJournal.JournalOperation.CREATE;
+import static com.acme.autohaus.repository.AutohausJournal.JournalOperation.PATCH;
+import static com.acme.autohaus.repository.AutohausJournal.JournalOperation.UPDATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("unit")
+@DisplayName("Journal für die Schreibzugriffe des Repositorys")
+class AutohausJournalTest {
+    // [int Laenge][int CRC32C][long Sequenz][byte Operation]
+    private static final int KOPF_GROESSE = Integer.BYTES + Integer.BYTES + Long.BYTES + 1;
+
+    @TempDir
+    Path verzeichnis;
+
+    @Test
+    @DisplayName("Protokollierte Operationen beim Öffnen in der Reihenfolge einspielen")
+    void einspielen() {
+        // given
+        final var autohaus = autohaus();
+        final var geaendert = kopie(autohaus, "0721 654321");
+        geaendert.setVersion(autohaus.getVersion() + 1);
+        try (var journal = oeffnen(0L, new ArrayList<>())) {
+            assertThat(journal.append(CREATE, autohaus)).isEqualTo(1L);
+            assertThat(journal.append(UPDATE, autohaus)).isEqualTo(2L);
+            assertThat(journal.append(PATCH, geaendert)).isEqualTo(3L);
+        }
+
+        // when
+        final List<Eintrag> eintraege = new ArrayList<>();
+        try (var journal = oeffnen(0L, eintraege)) {
+            // then
+            assertThat(journal.append(UPDATE, autohaus)).isEqualTo(4L);
+        }
+        assertThat(eintraege).extracting(Eintrag::operation).containsExactly(CREATE, UPDATE, PATCH);
+        assertThat(eintraege.get(0).autohaus()).usingRecursiveComparison().isEqualTo(autohaus);
+        assertThat(eintraege.get(1).autohaus()).usingRecursiveComparison().isEqualTo(autohaus);
+        final var patch = eintraege.get(2).autohaus();
+        assertThat(patch).usingRecursiveComparison().ignoringFields("autos", "adresse").isEqualTo(geaendert);
+        assertThat(patch.getAutos()).isEmpty();
+        assertThat(patch.getAdresse()).isNull();
+    }
+
+    @Test
+    @DisplayName("Einträge, die bereits im Snapshot enthalten sind, nicht einspielen")
+    void einspielenAbSequenz() {
+        // given
+        final var autohaeuser = List.of(autohaus(), autohaus(), autohaus());
+        try (var journal = oeffnen(0L, new ArrayList<>())) {
+            autohaeuser.forEach(autohaus -> journal.append(CREATE, autohaus));
+        }
+
+        // when
+        final List<Eintrag> eintraege = new ArrayList<>();
+        try (var journal = oeffnen(2L, eintraege)) {
+            // then
+            assertThat(journal.angewendeteSequenz()).isEqualTo(3L);
+        }
+        assertThat(eintraege).extracting(eintrag -> eintrag.autohaus().getUUId())
+            .containsExactly(autohaeuser.get(2).getUUId());
+    }
+
+    @Test
+    @DisplayName("Einträge über mehrere Abschnitte der Datei einspielen")
+    void einspielenAbschnitte() {
+        // given
+        final List<Autohaus> autohaeuser = IntStream.range(0, 200)
+            .mapToObj(_ -> autohaus())
+            .toList();
+        try (var journal = oeffnen(0L, new ArrayList<>())) {
+            autohaeuser.forEach(autohaus -> journal.append(CREATE, autohaus));
+        }
+
+        // when
+        final List<Eintrag> eintraege = new ArrayList<>();
+        oeffnen(0L, eintraege).close();
+
+        // then
+        assertThat(eintraege).extracting(eintrag -> eintrag.autohaus().getUUId())
+            .containsExactlyElementsOf(autohaeuser.stream().map(Autohaus::getUUId).toList());
+    }
+
+    @Test
+    @DisplayName("Ein beschädigter letzter Eintrag wird verworfen und überschrieben")
+    void einspielenBeschaedigt() throws IOException {
+        // given
+        final var erstes = autohaus();
+        final var zweites = autohaus();
+        try (var journal = oeffnen(0L, new ArrayList<>())) {
+            journal.append(CREATE, erstes);
+            journal.append(CREATE, zweites);
+        }
+        // ein Byte in den Daten des zweiten Eintrags kippen
+        final var position = KOPF_GROESSE + AutohausCodec.encode(erstes).length + KOPF_GROESSE;
+        try (var channel = FileChannel.open(verzeichnis.resolve(AutohausJournal.DATEINAME), READ, WRITE)) {
+            final var puffer = ByteBuffer.allocate(1);
+            channel.read(puffer, position);
+            puffer.put(0, (byte) (puffer.get(0) ^ 0x01)).rewind();
+            channel.write(puffer, position);
+        }
+
+        // when
+        final List<Eintrag> eintraege = new ArrayList<>();
+        try (var journal = oeffnen(0L, eintraege)) {
+            assertThat(journal.append(UPDATE, erstes)).isEqualTo(2L);
+        }
+        final List<Eintrag> nachUeberschreiben = new ArrayList<>();
+        oeffnen(0L, nachUeberschreiben).close();
+
+        // then
+        assertThat(eintraege).extracting(eintrag -> eintrag.autohaus().getUUId()).containsExactly(erstes.getUUId());
+        assertThat(nachUeberschreiben).extracting(Eintrag::operation).containsExactly(CREATE, UPDATE);
+    }
+
+    private AutohausJournal oeffnen(final long abSequenz, final List<Eintrag> eintraege) {
+        final var properties = new PersistenzProperties(
+            true,
+            verzeichnis,
+            false,
+            Duration.ofMillis(1),
+            DataSize.ofKilobytes(4),
+            Duration.ofMinutes(10)
+        );
+        return AutohausJournal.oeffnen(
+            properties,
+            abSequenz,
+            (operation, autohaus) -> eintraege.add(new Eintrag(operation, autohaus))
+        );
+    }
+
+    private static Autohaus kopie(final Autohaus autohaus, final String telefonnummer) {
+        return new Autohaus(
+            autohaus.getName(),
+            telefonnummer,
+            autohaus.getUUId(),
+            autohaus.getEmail(),
+            autohaus.getAutos(),
+            autohaus.getAdresse()
+        );
+    }
+
+    private record Eintrag(AutohausJournal.JournalOperation operation, Autohaus autohaus) {
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of [Projektname].
+ *
+ * [Projektname] is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * [Projektname] is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with [Projektname]. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.autohaus.repository;
+
+import com.acme.autohaus.entity.Autohaus;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static com.acme.autohaus.repository.AutohausCodecTest.autohaus;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("unit")
+@DisplayName("Snapshot-Datei mit allen Autohäusern")
+class AutohausSnapshotDateiTest {
+    @TempDir
+    Path verzeichnis;
+
+    @Test
+    @DisplayName("Snapshot schreiben und mit Sequenz und Reihenfolge laden")
+    void schreibenLaden() {
+        // given
+        final var autohaeuser = List.of(autohaus(), autohaus(), autohaus());
+
+        // when
+        AutohausSnapshotDatei.schreiben(verzeichnis, 42L, autohaeuser);
+        final var geladen = AutohausSnapshotDatei.laden(verzeichnis);
+
+        // then
+        assertThat(geladen).isPresent();
+        assertThat(geladen.get().sequenz()).isEqualTo(42L);
+        assertThat(geladen.get().autohaeuser()).usingRecursiveComparison().isEqualTo(autohaeuser);
+    }
+
+    @Test
+    @DisplayName("Viele Autohäuser werden in mehreren Abschnitten dekodiert")
+    void schreibenLadenAbschnitte() {
+        // given
+        final List<Autohaus> autohaeuser = IntStream.range(0, 5_000)
+            .mapToObj(i -> new Autohaus("Autohaus " + i, null, UUID.randomUUID(), i + "@acme.de", List.of(), null))
+            .toList();
+
+        // when
+        AutohausSnapshotDatei.schreiben(verzeichnis, 1L, autohaeuser);
+        final var geladen = AutohausSnapshotDatei.laden(verzeichnis);
+
+        // then
+        assertThat(geladen).isPresent();
+        assertThat(geladen.get().autohaeuser()).usingRecursiveComparison().isEqualTo(autohaeuser);
+    }
+
+    @Test
+    @DisplayName("Ein leerer Bestand ergibt einen leeren Snapshot")
+    void schreibenLadenLeer() {
+        // when
+        AutohausSnapshotDatei.schreiben(verzeichnis, 0L, List.of());
+        final var geladen = AutohausSnapshotDatei.laden(verzeichnis);
+
+        // then
+        assertThat(geladen).isPresent();
+        assertThat(geladen.get().autohaeuser()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Ohne Snapshot-Datei wird nichts geladen")
+    void ladenOhneDatei() {
+        assertThat(AutohausSnapshotDatei.laden(verzeichnis)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Ein beschädigter Snapshot wird ignoriert")
+    void ladenBeschaedigt() throws IOException {
+        // given
+        AutohausSnapshotDatei.schreiben(verzeichnis, 42L, List.of(autohaus(), autohaus()));
+        final var datei = verzeichnis.resolve(AutohausSnapshotDatei.DATEINAME);
+        final var bytes = Files.readAllBytes(datei);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(datei, bytes);
+
+        // when
+        final var geladen = AutohausSnapshotDatei.laden(verzeichnis);
+
+        // then
+        assertThat(geladen).isEmpty();
+    }
+}